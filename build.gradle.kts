@@ -2,6 +2,7 @@ plugins {
     `java-library`
     kotlin("jvm") version "2.0.20-RC2"
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "space.iseki.peparser"
@@ -20,6 +21,17 @@ tasks.test {
     useJUnitPlatform()
 }
 
+sourceSets {
+    named("jmh") {
+        // the benchmarks use the test fixtures as part of their corpus
+        resources.srcDir("src/test/resources")
+    }
+}
+
+jmh {
+    profilers.add("gc")
+}
+
 kotlin {
     jvmToolchain(17)
 }
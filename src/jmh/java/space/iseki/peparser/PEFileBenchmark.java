@@ -0,0 +1,170 @@
+package space.iseki.peparser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks over a small corpus, run with {@code ./gradlew jmh}; the {@code gc} profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PEFileBenchmark {
+    /**
+     * <ul>
+     *     <li>{@code fixture}: the test fixture, a small .NET PE32 executable</li>
+     *     <li>{@code small-pe32}: a PE32 image with a tiny {@code .text} and a few resources</li>
+     *     <li>{@code large-pe32plus}: a PE32+ image with a 64MiB {@code .text}</li>
+     *     <li>{@code resource-heavy}: a PE32+ image with 16 resource types of 512 named resources each</li>
+     * </ul>
+     */
+    @Param({"fixture", "small-pe32", "large-pe32plus", "resource-heavy"})
+    public String corpus;
+
+    private byte[] bytes;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        bytes = switch (corpus) {
+            case "fixture" -> readFixture();
+            case "small-pe32" -> SyntheticPE.build(false, 0x800, 2, 2);
+            case "large-pe32plus" -> SyntheticPE.build(true, 64 << 20, 4, 4);
+            case "resource-heavy" -> SyntheticPE.build(true, 0x800, 16, 512);
+            default -> throw new IllegalArgumentException(corpus);
+        };
+        file = Files.createTempFile("peparser-jmh", ".exe").toFile();
+        Files.write(file.toPath(), bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static byte[] readFixture() throws IOException {
+        try (InputStream input = PEFileBenchmark.class.getResourceAsStream("ScreenOff 2.1.exe")) {
+            return Objects.requireNonNull(input, "fixture not found").readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public PEProbe probeFile() throws IOException {
+        return PEFile.probe(file);
+    }
+
+    @Benchmark
+    public PEProbe probeBytes() {
+        return PEFile.probe(bytes);
+    }
+
+    @Benchmark
+    public OptionalHeader openFile() throws Exception {
+        try (var f = PEFile.open(file)) {
+            return f.getOptionalHeader();
+        }
+    }
+
+    @Benchmark
+    public OptionalHeader openMapped() throws Exception {
+        try (var f = PEFile.open(file, PEOpenOption.MEMORY_MAPPED)) {
+            return f.getOptionalHeader();
+        }
+    }
+
+    @Benchmark
+    public OptionalHeader openBytes() throws Exception {
+        try (var f = PEFile.open(bytes)) {
+            return f.getOptionalHeader();
+        }
+    }
+
+    @Benchmark
+    public void walkResourceTreeFile(Blackhole bh) throws Exception {
+        try (var f = PEFile.open(file)) {
+            walk(f.getResourceTree(), bh);
+        }
+    }
+
+    @Benchmark
+    public void walkResourceTreeMapped(Blackhole bh) throws Exception {
+        try (var f = PEFile.open(file, PEOpenOption.MEMORY_MAPPED)) {
+            walk(f.getResourceTree(), bh);
+        }
+    }
+
+    @Benchmark
+    public void readResourceDataFile(Blackhole bh) throws Exception {
+        try (var f = PEFile.open(file)) {
+            readData(f, f.getResourceTree(), bh);
+        }
+    }
+
+    @Benchmark
+    public void readResourceDataMapped(Blackhole bh) throws Exception {
+        try (var f = PEFile.open(file, PEOpenOption.MEMORY_MAPPED)) {
+            readData(f, f.getResourceTree(), bh);
+        }
+    }
+
+    @Benchmark
+    public Object codeViewInfoFile() throws Exception {
+        try (var f = PEFile.open(file)) {
+            return f.getCodeViewInfo();
+        }
+    }
+
+    @Benchmark
+    public int checksumFile() throws Exception {
+        try (var f = PEFile.open(file)) {
+            return f.computeChecksum();
+        }
+    }
+
+    @Benchmark
+    public int checksumMapped() throws Exception {
+        try (var f = PEFile.open(file, PEOpenOption.MEMORY_MAPPED)) {
+            return f.computeChecksum();
+        }
+    }
+
+    private static void walk(List<ResourceTreeNode> nodes, Blackhole bh) {
+        for (ResourceTreeNode node : nodes) {
+            bh.consume(node.resourceData());
+            walk(node.children(), bh);
+        }
+    }
+
+    private static void readData(PEFile f, List<ResourceTreeNode> nodes, Blackhole bh) throws IOException {
+        for (ResourceTreeNode node : nodes) {
+            if (node.resourceData() != null) {
+                bh.consume(f.getResourceData(node));
+            } else {
+                readData(f, node.children(), bh);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package space.iseki.peparser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds minimal but well-formed PE images for benchmarks.
+ */
+final class SyntheticPE {
+    private static final int FILE_ALIGNMENT = 0x200;
+    private static final int SECTION_ALIGNMENT = 0x1000;
+    private static final int SIZE_OF_HEADERS = 0x400;
+    private static final int PE_SIGNATURE_POSITION = 0x80;
+
+    private SyntheticPE() {
+    }
+
+    /**
+     * Build an image with a {@code .text} section and a {@code .rsrc} section.
+     *
+     * @param pe32Plus         build a PE32+ image instead of a PE32 one
+     * @param textSize         the size of the {@code .text} section
+     * @param resourceTypes    the number of resource types, each type is an ID entry
+     * @param resourcesPerType the number of resources per type, each resource is a name entry with one language
+     */
+    static byte[] build(boolean pe32Plus, int textSize, int resourceTypes, int resourcesPerType) {
+        var textRawSize = align(textSize, FILE_ALIGNMENT);
+        var textRva = SECTION_ALIGNMENT;
+        var rsrcRva = textRva + align(textSize, SECTION_ALIGNMENT);
+        var rsrc = buildResources(rsrcRva, resourceTypes, resourcesPerType);
+        var rsrcRawSize = align(rsrc.length, FILE_ALIGNMENT);
+        var sizeOfImage = rsrcRva + align(rsrc.length, SECTION_ALIGNMENT);
+        var buffer = ByteBuffer.allocate(SIZE_OF_HEADERS + textRawSize + rsrcRawSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(0, (byte) 'M').put(1, (byte) 'Z').putInt(PEFile.PE_SIGNATURE_OFFSET, PE_SIGNATURE_POSITION);
+        buffer.position(PE_SIGNATURE_POSITION);
+        buffer.put(new byte[]{'P', 'E', 0, 0});
+        // COFF header
+        buffer.putShort((short) (pe32Plus ? 0x8664 : 0x14c));
+        buffer.putShort((short) 2);
+        buffer.putInt(0x5f000000);
+        buffer.putInt(0).putInt(0);
+        buffer.putShort((short) (pe32Plus ? 240 : 224));
+        buffer.putShort((short) (pe32Plus ? 0x0022 : 0x0122));
+        // optional header
+        buffer.putShort(pe32Plus ? PEFile.PE32PLUS : PEFile.PE32);
+        buffer.put((byte) 14).put((byte) 0);
+        buffer.putInt(textRawSize).putInt(rsrcRawSize).putInt(0);
+        buffer.putInt(textRva).putInt(textRva);
+        if (pe32Plus) {
+            buffer.putLong(0x140000000L);
+        } else {
+            buffer.putInt(rsrcRva).putInt(0x400000);
+        }
+        buffer.putInt(SECTION_ALIGNMENT).putInt(FILE_ALIGNMENT);
+        buffer.putShort((short) 6).putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 6).putShort((short) 0);
+        buffer.putInt(0).putInt(sizeOfImage).putInt(SIZE_OF_HEADERS).putInt(0);
+        buffer.putShort((short) 2).putShort((short) 0x8140);
+        for (int i = 0; i < 4; i++) {
+            if (pe32Plus) buffer.putLong(0x100000); else buffer.putInt(0x100000);
+        }
+        buffer.putInt(0).putInt(16);
+        for (int i = 0; i < 16; i++) {
+            if (i == 2) buffer.putInt(rsrcRva).putInt(rsrc.length); else buffer.putInt(0).putInt(0);
+        }
+        // section table
+        putSectionHeader(buffer, ".text", textSize, textRva, textRawSize, SIZE_OF_HEADERS, 0x60000020);
+        putSectionHeader(buffer, ".rsrc", rsrc.length, rsrcRva, rsrcRawSize, SIZE_OF_HEADERS + textRawSize, 0x40000040);
+
+        for (int i = 0; i < textSize; i++) {
+            buffer.put(SIZE_OF_HEADERS + i, (byte) (i * 31));
+        }
+        buffer.put(SIZE_OF_HEADERS + textRawSize, rsrc);
+        return buffer.array();
+    }
+
+    private static void putSectionHeader(ByteBuffer buffer, String name, int virtualSize, int virtualAddress, int sizeOfRawData, int pointerToRawData, int characteristics) {
+        var nameBytes = new byte[8];
+        var b = name.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(b, 0, nameBytes, 0, b.length);
+        buffer.put(nameBytes);
+        buffer.putInt(virtualSize).putInt(virtualAddress).putInt(sizeOfRawData).putInt(pointerToRawData);
+        buffer.putInt(0).putInt(0).putShort((short) 0).putShort((short) 0);
+        buffer.putInt(characteristics);
+    }
+
+    /**
+     * Layout: root directory, type directories, name directories, language directories, data entries, names, data.
+     */
+    private static byte[] buildResources(int rsrcRva, int types, int perType) {
+        final int dataSize = 64;
+        var resources = types * perType;
+        var typeDirsOffset = 16 + 8 * types;
+        var nameDirsOffset = typeDirsOffset + types * (16 + 8 * perType);
+        var langDirsOffset = nameDirsOffset;
+        var dataEntriesOffset = langDirsOffset + resources * (16 + 8);
+        var namesOffset = dataEntriesOffset + resources * 16;
+        var nameLength = 2 + 2 * 8;
+        var dataOffset = align(namesOffset + resources * nameLength, 8);
+        var buffer = ByteBuffer.allocate(dataOffset + resources * dataSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        putDirectory(buffer, 0, 0, types);
+        for (int t = 0; t < types; t++) {
+            var typeDir = typeDirsOffset + t * (16 + 8 * perType);
+            buffer.putInt(16 + 8 * t, t + 1).putInt(16 + 8 * t + 4, typeDir | 0x80000000);
+            putDirectory(buffer, typeDir, perType, 0);
+            for (int r = 0; r < perType; r++) {
+                var index = t * perType + r;
+                var nameOff = namesOffset + index * nameLength;
+                var langDir = langDirsOffset + index * (16 + 8);
+                buffer.putInt(typeDir + 16 + 8 * r, nameOff | 0x80000000).putInt(typeDir + 16 + 8 * r + 4, langDir | 0x80000000);
+                // names are sorted since they are zero padded numbers
+                var name = String.format("RES%05d", r);
+                buffer.putShort(nameOff, (short) name.length());
+                for (int i = 0; i < name.length(); i++) buffer.putChar(nameOff + 2 + 2 * i, name.charAt(i));
+                putDirectory(buffer, langDir, 0, 1);
+                var dataEntry = dataEntriesOffset + index * 16;
+                buffer.putInt(langDir + 16, 1033).putInt(langDir + 20, dataEntry);
+                var data = dataOffset + index * dataSize;
+                buffer.putInt(dataEntry, rsrcRva + data).putInt(dataEntry + 4, dataSize).putInt(dataEntry + 8, 0);
+                for (int i = 0; i < dataSize; i++) buffer.put(data + i, (byte) index);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void putDirectory(ByteBuffer buffer, int offset, int nameEntries, int idEntries) {
+        buffer.putShort(offset + 12, (short) nameEntries).putShort(offset + 14, (short) idEntries);
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
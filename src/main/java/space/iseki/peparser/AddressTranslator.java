@@ -0,0 +1,138 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Translates RVAs to file offsets.
+ * <p>
+ * The section ranges are precomputed into primitive arrays sorted by virtual address, a lookup is a binary search and
+ * never allocates. The section addresses are adjusted like the Windows loader does: the pointer to raw data is rounded
+ * down to 512 bytes when the file alignment is at least 512, and an unaligned virtual address is rounded down to the
+ * section alignment. A section spans {@code max(virtualSize, sizeOfRawData)} bytes in memory, the part beyond
+ * {@code sizeOfRawData} is zero-filled and not backed by the file. RVAs below {@code sizeOfHeaders} which are not in
+ * any section map to the headers.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ *
+ * @see PEFile#getAddressTranslator()
+ */
+public final class AddressTranslator {
+    private static final int HARDCODED_FILE_ALIGNMENT = 0x200;
+    private static final int MIN_SECTION_ALIGNMENT = 0x1000;
+    // sorted by virtual address
+    private final long[] starts;
+    private final long[] ends;
+    // the maximum end of all sections before and at the same sorted position, used to find overlapping sections
+    private final long[] maxEnds;
+    private final int[] sectionIndexes;
+    // indexed by the section index, the last element is the headers region
+    private final long[] virtualAddresses;
+    private final long[] rawPointers;
+    private final long[] rawSizes;
+
+    AddressTranslator(@NotNull OptionalHeader optionalHeader, @NotNull List<@NotNull SectionHeader> sections) {
+        var n = sections.size();
+        virtualAddresses = new long[n + 1];
+        rawPointers = new long[n + 1];
+        rawSizes = new long[n + 1];
+        var virtualSizes = new long[n];
+        var fileAlignment = optionalHeader.fileAlignment() & PEFile.INT_MASK;
+        var sectionAlignment = optionalHeader.sectionAlignment() & PEFile.INT_MASK;
+        if (sectionAlignment < MIN_SECTION_ALIGNMENT) sectionAlignment = fileAlignment;
+        for (int i = 0; i < n; i++) {
+            var section = sections.get(i);
+            var virtualAddress = section.virtualAddress() & PEFile.INT_MASK;
+            if (sectionAlignment != 0) virtualAddress -= virtualAddress % sectionAlignment;
+            var rawPointer = section.pointerToRawData() & PEFile.INT_MASK;
+            if (fileAlignment >= HARDCODED_FILE_ALIGNMENT) rawPointer -= rawPointer % HARDCODED_FILE_ALIGNMENT;
+            var rawSize = section.sizeOfRawData() & PEFile.INT_MASK;
+            virtualAddresses[i] = virtualAddress;
+            rawPointers[i] = rawPointer;
+            rawSizes[i] = rawSize;
+            virtualSizes[i] = Math.max(section.virtualSize() & PEFile.INT_MASK, rawSize);
+        }
+        rawSizes[n] = optionalHeader.sizeOfHeaders() & PEFile.INT_MASK;
+        sectionIndexes = IntStream.range(0, n).boxed().sorted(Comparator.comparingLong(i -> virtualAddresses[i])).mapToInt(Integer::intValue).toArray();
+        starts = new long[n];
+        ends = new long[n];
+        maxEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            var index = sectionIndexes[i];
+            starts[i] = virtualAddresses[index];
+            ends[i] = starts[i] + virtualSizes[index];
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+
+    /**
+     * Find the section which contains the rva.
+     * <p>
+     * If sections overlap, the one with the highest virtual address is chosen.
+     * </p>
+     *
+     * @param rva the rva
+     * @return the index in {@link PEFile#getSections()}, or -1 if no section contains the rva
+     */
+    public int sectionIndexOf(int rva) {
+        var r = rva & PEFile.INT_MASK;
+        var pos = Arrays.binarySearch(starts, r);
+        if (pos < 0) {
+            // the last section which starts before the rva
+            pos = -pos - 2;
+        } else {
+            // the last section which starts at the rva, empty sections might share the address
+            while (pos + 1 < starts.length && starts[pos + 1] == r) pos++;
+        }
+        for (int i = pos; i >= 0 && maxEnds[i] > r; i--) {
+            if (ends[i] > r) return sectionIndexes[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Translate the rva to the file offset.
+     *
+     * @param rva the rva
+     * @return the file offset, or -1 if the rva is not backed by the file
+     */
+    public long toFileOffset(int rva) {
+        var region = regionOf(rva);
+        if (region < 0) return -1;
+        var off = (rva & PEFile.INT_MASK) - virtualAddresses[region];
+        return off < rawSizes[region] ? rawPointers[region] + off : -1;
+    }
+
+    /**
+     * Find the region which contains the rva.
+     *
+     * @return the section index, or {@link #headersRegion()} for the headers, or -1 if no region contains the rva
+     */
+    int regionOf(int rva) {
+        var index = sectionIndexOf(rva);
+        if (index >= 0) return index;
+        return (rva & PEFile.INT_MASK) < rawSizes[headersRegion()] ? headersRegion() : -1;
+    }
+
+    int headersRegion() {
+        return sectionIndexes.length;
+    }
+
+    long regionVirtualAddress(int region) {
+        return virtualAddresses[region];
+    }
+
+    long regionRawPointer(int region) {
+        return rawPointers[region];
+    }
+
+    long regionRawSize(int region) {
+        return rawSizes[region];
+    }
+}
@@ -0,0 +1,32 @@
+package space.iseki.peparser;
+
+/**
+ * Receives the entries of the base relocation table, see {@link PEFile#forEachBaseRelocation(BaseRelocationConsumer)}.
+ * <p>
+ * The entries are passed as primitives, so walking the table doesn't allocate per entry.
+ * </p>
+ */
+@FunctionalInterface
+public interface BaseRelocationConsumer {
+    /**
+     * Padding, it's skipped by {@link PEFile#forEachBaseRelocation(BaseRelocationConsumer)}.
+     */
+    int TYPE_ABSOLUTE = 0;
+    int TYPE_HIGH = 1;
+    int TYPE_LOW = 2;
+    int TYPE_HIGHLOW = 3;
+    /**
+     * Takes two slots, the second slot holds the low 16 bits of the adjustment and is not reported as an entry.
+     */
+    int TYPE_HIGHADJ = 4;
+    int TYPE_DIR64 = 10;
+
+    /**
+     * Accept a relocation.
+     *
+     * @param rva  the RVA to be patched, the page RVA of the block plus the 12-bit offset
+     * @param type the 4-bit type, e.g. {@link #TYPE_HIGHLOW} or {@link #TYPE_DIR64}; the meaning of types 5, 7, 8 and 9
+     *             depends on the machine type
+     */
+    void accept(int rva, int type);
+}
@@ -0,0 +1,122 @@
+package space.iseki.peparser;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads the image from one or more {@link ByteBuffer}s, either memory-mapped regions of a file or a buffer supplied by
+ * the user.
+ * <p>
+ * Only absolute bulk gets are used, the position of the buffers is never touched.
+ * </p>
+ */
+final class ByteBufferDataAccessor implements DataAccessor {
+    /**
+     * Files larger than this are mapped as several regions, since a single mapping is limited to 2GiB.
+     */
+    private static final int MAPPING_CHUNK_BITS = 30;
+    private final ByteBuffer[] chunks;
+    private final int chunkBits;
+    private final long chunkMask;
+    private final long size;
+
+    private ByteBufferDataAccessor(ByteBuffer[] chunks, int chunkBits, long size) {
+        this.chunks = chunks;
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1L << chunkBits) - 1;
+        this.size = size;
+    }
+
+    static ByteBufferDataAccessor wrap(ByteBuffer buffer) {
+        // a single buffer never exceeds Integer.MAX_VALUE bytes, so 31 bits always address the first chunk
+        return new ByteBufferDataAccessor(new ByteBuffer[]{buffer.slice()}, 31, buffer.remaining());
+    }
+
+    static ByteBufferDataAccessor map(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var size = channel.size();
+            var chunkSize = 1L << MAPPING_CHUNK_BITS;
+            var chunks = new ByteBuffer[(int) ((size + chunkSize - 1) >>> MAPPING_CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << MAPPING_CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+            }
+            // the mapping stays valid after the channel is closed
+            return new ByteBufferDataAccessor(chunks, MAPPING_CHUNK_BITS, size);
+        }
+    }
+
+    @Override
+    public void readFully(long pos, byte[] buf, int off, int len) throws IOException {
+        if (pos < 0 || pos + len > size) throw new EOFException();
+        while (len > 0) {
+            var chunk = chunks[(int) (pos >>> chunkBits)];
+            var chunkOffset = (int) (pos & chunkMask);
+            var n = Math.min(len, chunk.limit() - chunkOffset);
+            chunk.get(chunkOffset, buf, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public ByteBuffer slice(long pos, int len) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > size) throw new EOFException();
+        // the chunk at the end of the image might not exist
+        if (len == 0) return ByteBuffer.allocate(0).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        var chunk = chunks[(int) (pos >>> chunkBits)];
+        var chunkOffset = (int) (pos & chunkMask);
+        if (chunkOffset + len > chunk.limit()) return DataAccessor.super.slice(pos, len);
+        return chunk.slice(chunkOffset, len).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public boolean sharesSlices() {
+        return true;
+    }
+
+    @Override
+    public void transferTo(long pos, long len, WritableByteChannel target) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > size) throw new EOFException();
+        while (len > 0) {
+            var chunk = chunks[(int) (pos >>> chunkBits)];
+            var chunkOffset = (int) (pos & chunkMask);
+            var n = (int) Math.min(len, chunk.limit() - chunkOffset);
+            var slice = chunk.slice(chunkOffset, n);
+            while (slice.hasRemaining()) target.write(slice);
+            pos += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void readChunks(long pos, long len, Consumer<ByteBuffer> consumer) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > size) throw new EOFException();
+        while (len > 0) {
+            var chunk = chunks[(int) (pos >>> chunkBits)];
+            var chunkOffset = (int) (pos & chunkMask);
+            var n = (int) Math.min(len, chunk.limit() - chunkOffset);
+            consumer.accept(chunk.slice(chunkOffset, n).order(ByteOrder.LITTLE_ENDIAN));
+            pos += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        // mapped buffers are released by the GC
+    }
+}
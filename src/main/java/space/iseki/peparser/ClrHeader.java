@@ -0,0 +1,41 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The CLR runtime header of a .NET image, the {@code IMAGE_COR20_HEADER} structure.
+ *
+ * @param cb                      the size of the structure
+ * @param majorRuntimeVersion     the major version of the runtime required
+ * @param minorRuntimeVersion     the minor version of the runtime required
+ * @param metadata                the metadata root, see {@link PEFile#getClrMetadata()}
+ * @param flags                   e.g. {@link #FLAGS_IL_ONLY}
+ * @param entryPointToken         the metadata token of the entry point method, or the RVA of a native entry point if
+ *                                {@link #FLAGS_NATIVE_ENTRYPOINT} is set
+ * @param resources               the managed resources
+ * @param strongNameSignature     the strong name signature
+ * @param codeManagerTable        deprecated, always zero
+ * @param vTableFixups            the v-table fixups for mixed-mode images
+ * @param exportAddressTableJumps deprecated, always zero
+ * @param managedNativeHeader     the ReadyToRun header, or zero
+ * @see PEFile#getClrHeader()
+ */
+public record ClrHeader(int cb,
+                        short majorRuntimeVersion,
+                        short minorRuntimeVersion,
+                        @NotNull ImageDataDirectory metadata,
+                        int flags,
+                        int entryPointToken,
+                        @NotNull ImageDataDirectory resources,
+                        @NotNull ImageDataDirectory strongNameSignature,
+                        @NotNull ImageDataDirectory codeManagerTable,
+                        @NotNull ImageDataDirectory vTableFixups,
+                        @NotNull ImageDataDirectory exportAddressTableJumps,
+                        @NotNull ImageDataDirectory managedNativeHeader) {
+    public static final int FLAGS_IL_ONLY = 0x00000001;
+    public static final int FLAGS_32BIT_REQUIRED = 0x00000002;
+    public static final int FLAGS_STRONG_NAME_SIGNED = 0x00000008;
+    public static final int FLAGS_NATIVE_ENTRYPOINT = 0x00000010;
+    public static final int FLAGS_32BIT_PREFERRED = 0x00020000;
+    static final int LENGTH = 72;
+}
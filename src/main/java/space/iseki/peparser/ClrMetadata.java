@@ -0,0 +1,160 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The .NET metadata root and its stream directory.
+ * <p>
+ * Only the root and the stream headers are decoded, the streams are exposed as slices of the image, which don't copy
+ * for memory-mapped and in-memory images.
+ * </p>
+ *
+ * @see PEFile#getClrMetadata()
+ */
+public final class ClrMetadata {
+    public static final String TABLES_STREAM = "#~";
+    /**
+     * The uncompressed(edit-and-continue) tables stream, used instead of {@link #TABLES_STREAM} by some compilers.
+     */
+    public static final String UNCOMPRESSED_TABLES_STREAM = "#-";
+    public static final String STRINGS_STREAM = "#Strings";
+    public static final String USER_STRINGS_STREAM = "#US";
+    public static final String GUID_STREAM = "#GUID";
+    public static final String BLOB_STREAM = "#Blob";
+    static final int SIGNATURE = 0x424A5342;
+    private final ByteBuffer data;
+    private final short majorVersion;
+    private final short minorVersion;
+    private final String version;
+    private final short flags;
+    private final List<MetadataStream> streams;
+
+    private ClrMetadata(ByteBuffer data, short majorVersion, short minorVersion, String version, short flags, List<MetadataStream> streams) {
+        this.data = data;
+        this.majorVersion = majorVersion;
+        this.minorVersion = minorVersion;
+        this.version = version;
+        this.flags = flags;
+        this.streams = streams;
+    }
+
+    /**
+     * Parse the metadata root.
+     *
+     * @param data the metadata, from index 0 to its limit
+     * @throws PEFileException the metadata root is invalid
+     */
+    static @NotNull ClrMetadata parse(@NotNull ByteBuffer data) {
+        try {
+            if (data.getInt(0) != SIGNATURE) throw new PEFileException("metadata signature not match");
+            var majorVersion = data.getShort(4);
+            var minorVersion = data.getShort(6);
+            var versionLength = data.getInt(12);
+            if (versionLength < 0 || versionLength > data.limit() - 16) throw new PEFileException("invalid metadata version length: " + versionLength);
+            var version = readString(data, 16, terminator(data, 16, 16 + versionLength));
+            var off = 16 + ((versionLength + 3) & ~3);
+            var flags = data.getShort(off);
+            var count = data.getShort(off + 2) & PEFile.SHORT_MASK;
+            off += 4;
+            var streams = new MetadataStream[count];
+            for (int i = 0; i < count; i++) {
+                var offset = data.getInt(off);
+                var size = data.getInt(off + 4);
+                if (offset < 0 || size < 0 || offset > data.limit() - size) throw new PEFileException("metadata stream out of the metadata: offset " + offset + ", size " + size);
+                var nameEnd = terminator(data, off + 8, data.limit());
+                streams[i] = new MetadataStream(readString(data, off + 8, nameEnd), offset, size);
+                // the name is NUL-terminated and padded to 4 bytes, counted in bytes rather than decoded chars
+                off += 8 + ((nameEnd - (off + 8) + 4) & ~3);
+            }
+            return new ClrMetadata(data, majorVersion, minorVersion, version, flags, List.of(streams));
+        } catch (IndexOutOfBoundsException e) {
+            throw new PEFileException("invalid metadata root", e);
+        }
+    }
+
+    /**
+     * Find the NUL terminator of the string at {@code off}, or {@code end} if the string fills the field.
+     */
+    private static int terminator(ByteBuffer data, int off, int end) {
+        var p = off;
+        while (p < end && data.get(p) != 0) p++;
+        if (p == end && end == data.limit()) throw new PEFileException("metadata string not terminated");
+        return p;
+    }
+
+    private static String readString(ByteBuffer data, int off, int end) {
+        var bytes = new byte[end - off];
+        data.get(off, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public short majorVersion() {
+        return majorVersion;
+    }
+
+    public short minorVersion() {
+        return minorVersion;
+    }
+
+    /**
+     * Get the version of the runtime the image was built against, e.g. {@code v4.0.30319}.
+     */
+    public @NotNull String version() {
+        return version;
+    }
+
+    public short flags() {
+        return flags;
+    }
+
+    /**
+     * Get the stream headers.
+     *
+     * @return the list is unmodifiable
+     */
+    public @NotNull List<@NotNull MetadataStream> streams() {
+        return streams;
+    }
+
+    /**
+     * Find a stream by name, e.g. {@link #STRINGS_STREAM}.
+     *
+     * @return the stream, or null if not found
+     */
+    public @Nullable MetadataStream findStream(@NotNull String name) {
+        for (var stream : streams) {
+            if (stream.name().equals(name)) return stream;
+        }
+        return null;
+    }
+
+    /**
+     * Get the content of the stream as a read-only, little-endian slice of the image.
+     *
+     * @param stream the stream, from {@link #streams()}
+     * @return the content
+     * @throws IllegalArgumentException if the stream is out of the metadata
+     */
+    public @NotNull ByteBuffer getStreamBuffer(@NotNull MetadataStream stream) {
+        if (stream.offset() < 0 || stream.size() < 0 || stream.offset() > data.limit() - stream.size()) throw new IllegalArgumentException("the stream is out of the metadata");
+        return data.slice(stream.offset(), stream.size()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get the whole metadata as a read-only, little-endian slice of the image, e.g. for fingerprinting.
+     */
+    public @NotNull ByteBuffer getBuffer() {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public String toString() {
+        return "ClrMetadata{version=" + version + ", streams=" + streams + '}';
+    }
+}
@@ -0,0 +1,27 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The CodeView {@code RSDS} (PDB 7.0) record of the debug directory, it identifies the PDB file of an image.
+ *
+ * @param guid the signature of the PDB file
+ * @param age  the age of the PDB file, it's incremented each time the PDB file is updated
+ * @param path the path of the PDB file when the image was linked
+ * @see PEFile#getCodeViewInfo()
+ */
+public record CodeViewInfo(@NotNull UUID guid, int age, @NotNull String path) {
+    static final int RSDS_SIGNATURE = 0x53445352;
+    static final int RSDS_HEADER_LENGTH = 24;
+
+    /**
+     * Get the key used by symbol servers, the GUID in upper-case hex without dashes followed by the age in hex, e.g.
+     * {@code ACB101E7857A4CFABBA2C4663E6F16EC1}.
+     */
+    public @NotNull String getSymbolKey() {
+        return (guid.toString().replace("-", "") + Integer.toHexString(age)).toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,104 @@
+package space.iseki.peparser;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Random access to the bytes of a PE image.
+ */
+interface DataAccessor extends Closeable {
+    int TRANSFER_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Read exactly {@code len} bytes starting at the absolute position {@code pos}.
+     *
+     * @throws java.io.EOFException if the image ends before {@code len} bytes were read
+     */
+    void readFully(long pos, byte[] buf, int off, int len) throws IOException;
+
+    default void readFully(long pos, byte[] buf) throws IOException {
+        readFully(pos, buf, 0, buf.length);
+    }
+
+    /**
+     * Get a read-only, little-endian buffer of {@code len} bytes starting at the absolute position {@code pos}.
+     * <p>
+     * The default implementation copies the range into a heap buffer.
+     * </p>
+     *
+     * @throws java.io.EOFException if the image ends before {@code len} bytes
+     */
+    default ByteBuffer slice(long pos, int len) throws IOException {
+        var buf = new byte[len];
+        readFully(pos, buf);
+        return ByteBuffer.wrap(buf).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Whether {@link #slice(long, int)} returns views of the image instead of copies, so slices are cheap to keep.
+     */
+    default boolean sharesSlices() {
+        return false;
+    }
+
+    /**
+     * Write {@code len} bytes starting at the absolute position {@code pos} to the channel.
+     * <p>
+     * The default implementation writes {@link #slice(long, int) slices} of at most {@link #TRANSFER_CHUNK_SIZE} bytes.
+     * </p>
+     *
+     * @throws EOFException if the image ends before {@code len} bytes
+     */
+    default void transferTo(long pos, long len, WritableByteChannel target) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > size()) throw new EOFException();
+        while (len > 0) {
+            var n = (int) Math.min(len, TRANSFER_CHUNK_SIZE);
+            var chunk = slice(pos, n);
+            while (chunk.hasRemaining()) target.write(chunk);
+            pos += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Pass {@code len} bytes starting at the absolute position {@code pos} to the consumer, chunk by chunk.
+     * <p>
+     * The chunks are little-endian buffers, they are only valid during the call and must not be modified. The default
+     * implementation reads chunks of at most {@link #TRANSFER_CHUNK_SIZE} bytes into a reused heap buffer.
+     * </p>
+     *
+     * @throws EOFException if the image ends before {@code len} bytes
+     */
+    default void readChunks(long pos, long len, Consumer<ByteBuffer> consumer) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > size()) throw new EOFException();
+        var buf = new byte[(int) Math.min(len, TRANSFER_CHUNK_SIZE)];
+        while (len > 0) {
+            var n = (int) Math.min(len, buf.length);
+            readFully(pos, buf, 0, n);
+            consumer.accept(ByteBuffer.wrap(buf, 0, n).order(ByteOrder.LITTLE_ENDIAN));
+            pos += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Open a stream of {@code len} bytes starting at the absolute position {@code pos}.
+     * <p>
+     * Each read of the stream is a positional read, so the stream can be used together with other reads.
+     * </p>
+     */
+    default InputStream newInputStream(long pos, long len) {
+        return new DataAccessorInputStream(this, pos, len);
+    }
+
+    /**
+     * Get the size of the image in bytes.
+     */
+    long size() throws IOException;
+}
@@ -0,0 +1,51 @@
+package space.iseki.peparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * A stream over a range of a {@link DataAccessor}, closing the stream doesn't close the accessor.
+ */
+final class DataAccessorInputStream extends InputStream {
+    private final DataAccessor accessor;
+    private final long end;
+    private final byte[] single = new byte[1];
+    private long pos;
+
+    DataAccessorInputStream(DataAccessor accessor, long pos, long len) {
+        this.accessor = accessor;
+        this.pos = pos;
+        this.end = pos + len;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= end) return -1;
+        accessor.readFully(pos++, single);
+        return single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) return 0;
+        if (pos >= end) return -1;
+        var n = (int) Math.min(len, end - pos);
+        accessor.readFully(pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        var skipped = Math.max(0, Math.min(n, end - pos));
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(end - pos, Integer.MAX_VALUE);
+    }
+}
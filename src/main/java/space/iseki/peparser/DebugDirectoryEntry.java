@@ -0,0 +1,34 @@
+package space.iseki.peparser;
+
+/**
+ * An entry of the debug directory, the {@code IMAGE_DEBUG_DIRECTORY} structure.
+ *
+ * @param characteristics  reserved, must be zero
+ * @param timeDateStamp    the time and date that the debug data was created
+ * @param majorVersion     the major version number of the debug data format
+ * @param minorVersion     the minor version number of the debug data format
+ * @param type             the format of the debug data, e.g. {@link #TYPE_CODEVIEW}
+ * @param sizeOfData       the size of the debug data, not including the debug directory itself
+ * @param addressOfRawData the RVA of the debug data when loaded, or zero if it's not mapped
+ * @param pointerToRawData the file offset of the debug data
+ * @see PEFile#getDebugDirectory()
+ */
+public record DebugDirectoryEntry(int characteristics,
+                                  int timeDateStamp,
+                                  short majorVersion,
+                                  short minorVersion,
+                                  int type,
+                                  int sizeOfData,
+                                  int addressOfRawData,
+                                  int pointerToRawData) {
+    public static final int TYPE_COFF = 1;
+    public static final int TYPE_CODEVIEW = 2;
+    public static final int TYPE_FPO = 3;
+    public static final int TYPE_MISC = 4;
+    public static final int TYPE_EXCEPTION = 5;
+    public static final int TYPE_FIXUP = 6;
+    public static final int TYPE_BORLAND = 9;
+    public static final int TYPE_REPRO = 16;
+    public static final int TYPE_EX_DLLCHARACTERISTICS = 20;
+    static final int LENGTH = 28;
+}
@@ -0,0 +1,115 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * An entry of the delay-load import directory, the {@code ImgDelayDescr} structure.
+ * <p>
+ * The addresses are RVAs; descriptors of old linkers which hold VAs are converted when they are read. The library name
+ * and the entries are decoded on first access, the names are interned, so {@link PEFileException} and
+ * {@link java.io.UncheckedIOException} might be thrown by {@link #name()} and {@link #entries()}.
+ * </p>
+ */
+public final class DelayImportDescriptor {
+    static final int LENGTH = 32;
+    /**
+     * Set if the descriptor holds RVAs.
+     */
+    static final int ATTRIBUTE_RVA_BASED = 1;
+    private final PEFile file;
+    private final int attributes;
+    private final int nameRva;
+    private final int moduleHandleRva;
+    private final int importAddressTableRva;
+    private final int importNameTableRva;
+    private final int boundImportAddressTableRva;
+    private final int unloadInformationTableRva;
+    private final int timeDateStamp;
+    private volatile String name;
+    private volatile List<ImportEntry> entries;
+
+    DelayImportDescriptor(PEFile file, int attributes, int nameRva, int moduleHandleRva, int importAddressTableRva, int importNameTableRva, int boundImportAddressTableRva, int unloadInformationTableRva, int timeDateStamp) {
+        this.file = file;
+        this.attributes = attributes;
+        this.nameRva = nameRva;
+        this.moduleHandleRva = moduleHandleRva;
+        this.importAddressTableRva = importAddressTableRva;
+        this.importNameTableRva = importNameTableRva;
+        this.boundImportAddressTableRva = boundImportAddressTableRva;
+        this.unloadInformationTableRva = unloadInformationTableRva;
+        this.timeDateStamp = timeDateStamp;
+    }
+
+    /**
+     * The attributes, bit 0 is set if the descriptor holds RVAs.
+     */
+    public int attributes() {
+        return attributes;
+    }
+
+    public int nameRva() {
+        return nameRva;
+    }
+
+    /**
+     * The RVA of the module handle, it's filled when the library is loaded.
+     */
+    public int moduleHandleRva() {
+        return moduleHandleRva;
+    }
+
+    public int importAddressTableRva() {
+        return importAddressTableRva;
+    }
+
+    public int importNameTableRva() {
+        return importNameTableRva;
+    }
+
+    public int boundImportAddressTableRva() {
+        return boundImportAddressTableRva;
+    }
+
+    public int unloadInformationTableRva() {
+        return unloadInformationTableRva;
+    }
+
+    public int timeDateStamp() {
+        return timeDateStamp;
+    }
+
+    /**
+     * Get the name of the library, the name is interned.
+     */
+    public @NotNull String name() {
+        var n = name;
+        if (n == null) {
+            n = file.readName(nameRva);
+            name = n;
+        }
+        return n;
+    }
+
+    /**
+     * Get the imported symbols, the {@link ImportEntry#thunkRva()} are in the delay-load import address table.
+     *
+     * @return the list is unmodifiable, the entries are decoded when they are accessed
+     */
+    public @NotNull List<@NotNull ImportEntry> entries() {
+        var list = entries;
+        if (list == null) {
+            var optionalHeader = file.getOptionalHeader();
+            var nameBase = (attributes & ATTRIBUTE_RVA_BASED) != 0 ? 0 : optionalHeader.imageBase();
+            list = importNameTableRva == 0 ? List.of() : new ImportEntryList(file, importNameTableRva, importAddressTableRva, optionalHeader.pe32Plus(), nameBase);
+            entries = list;
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "DelayImportDescriptor[name=" + name() + ", attributes=" + attributes + ", nameRva=" + nameRva + ", moduleHandleRva=" + moduleHandleRva + ", importAddressTableRva=" + importAddressTableRva + ", importNameTableRva=" + importNameTableRva + ", timeDateStamp=" + timeDateStamp + "]";
+    }
+}
@@ -0,0 +1,149 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The exception directory ({@code .pdata}) of an x64 or ARM64 image, the table of {@code RUNTIME_FUNCTION} entries.
+ * <p>
+ * The entries are decoded once into packed {@code int} arrays sorted by begin address, so
+ * {@link #findFunction(int)} is a binary search without allocation.
+ * </p>
+ *
+ * @see PEFile#getExceptionDirectory()
+ */
+public final class ExceptionDirectory {
+    private final int[] beginAddresses;
+    private final int[] endAddresses;
+    private final int[] unwindData;
+
+    private ExceptionDirectory(int[] beginAddresses, int[] endAddresses, int[] unwindData) {
+        this.beginAddresses = beginAddresses;
+        this.endAddresses = endAddresses;
+        this.unwindData = unwindData;
+    }
+
+    /**
+     * Decode the x64 {@code RUNTIME_FUNCTION} entries: BeginAddress, EndAddress, UnwindInfoAddress.
+     */
+    static @NotNull ExceptionDirectory readAmd64(@NotNull ByteBuffer data, int count) {
+        var begin = new int[count];
+        var end = new int[count];
+        var unwind = new int[count];
+        for (int i = 0; i < count; i++) {
+            begin[i] = data.getInt(i * 12);
+            end[i] = data.getInt(i * 12 + 4);
+            unwind[i] = data.getInt(i * 12 + 8);
+        }
+        return sorted(begin, end, unwind);
+    }
+
+    /**
+     * Decode the ARM64 {@code RUNTIME_FUNCTION} entries: BeginAddress, UnwindData. The function length is in the
+     * packed unwind data, or in the header of the {@code .xdata} record it points to.
+     */
+    static @NotNull ExceptionDirectory readArm64(@NotNull PEFile file, @NotNull ByteBuffer data, int count) {
+        var begin = new int[count];
+        var end = new int[count];
+        var unwind = new int[count];
+        for (int i = 0; i < count; i++) {
+            begin[i] = data.getInt(i * 8);
+            unwind[i] = data.getInt(i * 8 + 4);
+            int length;
+            if ((unwind[i] & 3) != 0) {
+                // packed unwind data, FunctionLength in bits 2-12
+                length = (unwind[i] >>> 2 & 0x7ff) * 4;
+            } else {
+                // .xdata record, FunctionLength in bits 0-17 of the header
+                length = (file.bufferAt(unwind[i], 4).getInt(0) & 0x3ffff) * 4;
+            }
+            end[i] = begin[i] + length;
+        }
+        return sorted(begin, end, unwind);
+    }
+
+    private static ExceptionDirectory sorted(int[] begin, int[] end, int[] unwind) {
+        var isSorted = true;
+        for (int i = 1; i < begin.length && isSorted; i++) {
+            isSorted = Integer.compareUnsigned(begin[i - 1], begin[i]) <= 0;
+        }
+        if (isSorted) return new ExceptionDirectory(begin, end, unwind);
+        // the linker sorts the table, but don't rely on it
+        var keys = new long[begin.length];
+        for (int i = 0; i < keys.length; i++) keys[i] = (begin[i] & PEFile.INT_MASK) << 32 | i;
+        Arrays.sort(keys);
+        var b = new int[begin.length];
+        var e = new int[begin.length];
+        var u = new int[begin.length];
+        for (int i = 0; i < keys.length; i++) {
+            var index = (int) keys[i];
+            b[i] = begin[index];
+            e[i] = end[index];
+            u[i] = unwind[index];
+        }
+        return new ExceptionDirectory(b, e, u);
+    }
+
+    /**
+     * Get the number of entries.
+     */
+    public int size() {
+        return beginAddresses.length;
+    }
+
+    /**
+     * Get the RVA of the start of the function.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int beginAddress(int index) {
+        return beginAddresses[index];
+    }
+
+    /**
+     * Get the RVA of the end of the function, exclusive.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int endAddress(int index) {
+        return endAddresses[index];
+    }
+
+    /**
+     * Get the RVA of the unwind information; for ARM64 it's the packed unwind data if the low two bits are not zero.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int unwindData(int index) {
+        return unwindData[index];
+    }
+
+    /**
+     * Find the function containing the RVA.
+     *
+     * @param rva the RVA, e.g. an instruction address minus the image base
+     * @return the index of the entry, or -1 if the RVA is not in any function
+     */
+    public int findFunction(int rva) {
+        // the last entry beginning at or before the rva
+        int low = 0, high = beginAddresses.length - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(beginAddresses[mid], rva) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || Integer.compareUnsigned(rva, endAddresses[found]) >= 0) return -1;
+        return found;
+    }
+
+    @Override
+    public String toString() {
+        return "ExceptionDirectory{size=" + size() + '}';
+    }
+}
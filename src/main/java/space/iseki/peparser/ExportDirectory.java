@@ -0,0 +1,245 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The export directory.
+ * <p>
+ * Nothing is materialized up front: {@link #findByOrdinal(int)} indexes the export address table directly, and
+ * {@link #findByName(String)} binary-searches the name pointer table (which is sorted by the linker), comparing the
+ * names in place. The reverse index from ordinals to names is built the first time a name is needed for an ordinal.
+ * Methods might throw {@link PEFileException} and {@link java.io.UncheckedIOException} if the tables are invalid or
+ * cannot be read.
+ * </p>
+ */
+public final class ExportDirectory {
+    private final PEFile file;
+    private final int directoryStart;
+    private final int directoryEnd;
+    private final int characteristics;
+    private final int timeDateStamp;
+    private final short majorVersion;
+    private final short minorVersion;
+    private final int nameRva;
+    private final int ordinalBase;
+    private final int numberOfFunctions;
+    private final int numberOfNames;
+    private final int addressOfFunctions;
+    private final int addressOfNames;
+    private final int addressOfNameOrdinals;
+    private volatile String name;
+    private volatile ByteBuffer functions;
+    private volatile ByteBuffer names;
+    private volatile ByteBuffer nameOrdinals;
+    private volatile int[] nameIndex;
+    private volatile List<ExportEntry> entries;
+
+    ExportDirectory(PEFile file, ImageDataDirectory directory, ByteBuffer data) {
+        if (data.limit() < 40) throw new PEFileException("export directory exceeds the section");
+        this.file = file;
+        this.directoryStart = directory.virtualAddress();
+        this.directoryEnd = directory.virtualAddress() + directory.size();
+        this.characteristics = data.getInt(0);
+        this.timeDateStamp = data.getInt(4);
+        this.majorVersion = data.getShort(8);
+        this.minorVersion = data.getShort(10);
+        this.nameRva = data.getInt(12);
+        this.ordinalBase = data.getInt(16);
+        this.numberOfFunctions = data.getInt(20);
+        this.numberOfNames = data.getInt(24);
+        this.addressOfFunctions = data.getInt(28);
+        this.addressOfNames = data.getInt(32);
+        this.addressOfNameOrdinals = data.getInt(36);
+        if (numberOfFunctions < 0 || numberOfNames < 0) throw new PEFileException("invalid export directory");
+    }
+
+    public int characteristics() {
+        return characteristics;
+    }
+
+    public int timeDateStamp() {
+        return timeDateStamp;
+    }
+
+    public short majorVersion() {
+        return majorVersion;
+    }
+
+    public short minorVersion() {
+        return minorVersion;
+    }
+
+    public int ordinalBase() {
+        return ordinalBase;
+    }
+
+    public int numberOfFunctions() {
+        return numberOfFunctions;
+    }
+
+    public int numberOfNames() {
+        return numberOfNames;
+    }
+
+    /**
+     * Get the name of the library, the name is interned.
+     */
+    public @NotNull String name() {
+        var n = name;
+        if (n == null) {
+            n = file.readName(nameRva);
+            name = n;
+        }
+        return n;
+    }
+
+    /**
+     * Find an export by ordinal.
+     *
+     * @param ordinal the ordinal, including the ordinal base
+     * @return the export, or null if the ordinal is not exported
+     */
+    public @Nullable ExportEntry findByOrdinal(int ordinal) {
+        var index = ordinal - ordinalBase;
+        if (index < 0 || index >= numberOfFunctions || functions().getInt(index * 4) == 0) return null;
+        return entryOf(index, nameOf(nameIndex()[index]));
+    }
+
+    /**
+     * Find an export by name, the name is case-sensitive.
+     *
+     * @param name the name
+     * @return the export, or null if the name is not exported
+     */
+    public @Nullable ExportEntry findByName(@NotNull String name) {
+        var names = names();
+        int low = 0;
+        int high = numberOfNames - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = file.compareName(names.getInt(mid * 4), name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return entryOf(nameOrdinals().getShort(mid * 2) & PEFile.SHORT_MASK, file.readName(names.getInt(mid * 4)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all exports, indexed by {@code ordinal - ordinalBase}.
+     * <p>
+     * Unused slots of the export address table are included with a zero {@code rva}. The first call reads the name
+     * ordinal table to associate names with entries.
+     * </p>
+     *
+     * @return the list is unmodifiable, the entries are decoded when they are accessed
+     */
+    public @NotNull List<@NotNull ExportEntry> entries() {
+        var list = entries;
+        if (list == null) {
+            list = new EntryList(nameIndex());
+            entries = list;
+        }
+        return list;
+    }
+
+    /**
+     * Get the index into the name pointer table for each slot of the export address table, -1 for unnamed slots.
+     */
+    private int[] nameIndex() {
+        var a = nameIndex;
+        if (a == null) {
+            // validate the table size before allocating for it
+            functions();
+            a = new int[numberOfFunctions];
+            Arrays.fill(a, -1);
+            var nameOrdinals = nameOrdinals();
+            for (int i = 0; i < numberOfNames; i++) {
+                var index = nameOrdinals.getShort(i * 2) & PEFile.SHORT_MASK;
+                if (index < numberOfFunctions && a[index] < 0) a[index] = i;
+            }
+            nameIndex = a;
+        }
+        return a;
+    }
+
+    private @Nullable String nameOf(int nameIndex) {
+        return nameIndex < 0 ? null : file.readName(names().getInt(nameIndex * 4));
+    }
+
+    private ExportEntry entryOf(int index, @Nullable String name) {
+        var rva = functions().getInt(index * 4);
+        // a RVA inside the export directory points to a forwarder string
+        var forwarder = rva != 0 && Integer.compareUnsigned(rva, directoryStart) >= 0 && Integer.compareUnsigned(rva, directoryEnd) < 0 ? file.readName(rva) : null;
+        return new ExportEntry(name, index + ordinalBase, rva, forwarder);
+    }
+
+    private ByteBuffer functions() {
+        var b = functions;
+        if (b == null) {
+            b = checkedBufferAt(addressOfFunctions, numberOfFunctions, 4);
+            functions = b;
+        }
+        return b;
+    }
+
+    private ByteBuffer names() {
+        var b = names;
+        if (b == null) {
+            b = checkedBufferAt(addressOfNames, numberOfNames, 4);
+            names = b;
+        }
+        return b;
+    }
+
+    private ByteBuffer nameOrdinals() {
+        var b = nameOrdinals;
+        if (b == null) {
+            b = checkedBufferAt(addressOfNameOrdinals, numberOfNames, 2);
+            nameOrdinals = b;
+        }
+        return b;
+    }
+
+    private ByteBuffer checkedBufferAt(int rva, int count, int elementSize) {
+        if (count == 0) return ByteBuffer.allocate(0);
+        var b = file.bufferAt(rva, (long) count * elementSize);
+        if (b.limit() / elementSize < count) throw new PEFileException("export table exceeds the section");
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportDirectory[name=" + name() + ", ordinalBase=" + ordinalBase + ", numberOfFunctions=" + numberOfFunctions + ", numberOfNames=" + numberOfNames + "]";
+    }
+
+    private final class EntryList extends AbstractList<ExportEntry> implements RandomAccess {
+        private final int[] nameIndex;
+
+        EntryList(int[] nameIndex) {
+            this.nameIndex = nameIndex;
+        }
+
+        @Override
+        public ExportEntry get(int index) {
+            if (index < 0 || index >= nameIndex.length) throw new IndexOutOfBoundsException(index);
+            return entryOf(index, nameOf(nameIndex[index]));
+        }
+
+        @Override
+        public int size() {
+            return nameIndex.length;
+        }
+    }
+}
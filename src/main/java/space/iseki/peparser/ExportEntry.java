@@ -0,0 +1,17 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An exported symbol.
+ *
+ * @param name      the interned symbol name, will be null if the symbol is exported by ordinal only
+ * @param ordinal   the ordinal, the ordinal base has been applied
+ * @param rva       the RVA of the symbol, or of the forwarder string if {@code forwarder} is not null
+ * @param forwarder the forwarder, e.g. {@code NTDLL.RtlAllocateHeap}, will be null if the symbol is not forwarded
+ */
+public record ExportEntry(@Nullable String name, int ordinal, int rva, @Nullable String forwarder) {
+    public boolean isForwarder() {
+        return forwarder != null;
+    }
+}
@@ -0,0 +1,27 @@
+package space.iseki.peparser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+final class FileChannels {
+    private FileChannels() {
+    }
+
+    /**
+     * Transfer exactly {@code len} bytes with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which
+     * might transfer fewer bytes than requested in one call. The position of the channel is not changed.
+     *
+     * @throws EOFException if the file ends before {@code len} bytes
+     */
+    static void transferTo(FileChannel channel, long pos, long len, WritableByteChannel target) throws IOException {
+        if (pos < 0 || len < 0 || pos + len > channel.size()) throw new EOFException();
+        while (len > 0) {
+            var n = channel.transferTo(pos, len, target);
+            if (n <= 0) throw new EOFException();
+            pos += n;
+            len -= n;
+        }
+    }
+}
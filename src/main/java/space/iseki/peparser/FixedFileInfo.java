@@ -0,0 +1,53 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code VS_FIXEDFILEINFO} structure of a version resource.
+ *
+ * @param structVersion    the binary version number of this structure
+ * @param fileVersionMS    the most significant 32 bits of the file version
+ * @param fileVersionLS    the least significant 32 bits of the file version
+ * @param productVersionMS the most significant 32 bits of the product version
+ * @param productVersionLS the least significant 32 bits of the product version
+ * @param fileFlagsMask    the valid bits in {@code fileFlags}
+ * @param fileFlags        e.g. {@code VS_FF_DEBUG}
+ * @param fileOS           the operating system the file was designed for
+ * @param fileType         e.g. {@code VFT_APP}, {@code VFT_DLL}
+ * @param fileSubtype      the function of the file, depends on {@code fileType}
+ * @param fileDateMS       the most significant 32 bits of the creation date, usually zero
+ * @param fileDateLS       the least significant 32 bits of the creation date, usually zero
+ */
+public record FixedFileInfo(int structVersion,
+                            int fileVersionMS,
+                            int fileVersionLS,
+                            int productVersionMS,
+                            int productVersionLS,
+                            int fileFlagsMask,
+                            int fileFlags,
+                            int fileOS,
+                            int fileType,
+                            int fileSubtype,
+                            int fileDateMS,
+                            int fileDateLS) {
+    static final int SIGNATURE = 0xFEEF04BD;
+    static final int LENGTH = 52;
+
+    /**
+     * Get the file version, e.g. {@code 10.0.19041.1}.
+     */
+    public @NotNull String getFileVersion() {
+        return formatVersion(fileVersionMS, fileVersionLS);
+    }
+
+    /**
+     * Get the product version, e.g. {@code 10.0.19041.1}.
+     */
+    public @NotNull String getProductVersion() {
+        return formatVersion(productVersionMS, productVersionLS);
+    }
+
+    private static String formatVersion(int ms, int ls) {
+        return (ms >>> 16) + "." + (ms & 0xffff) + "." + (ls >>> 16) + "." + (ls & 0xffff);
+    }
+}
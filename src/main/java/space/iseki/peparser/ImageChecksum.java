@@ -0,0 +1,70 @@
+package space.iseki.peparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * The PE image checksum, as computed by {@code CheckSumMappedFile}.
+ * <p>
+ * The checksum is the folded 16-bit one's complement sum of the 16-bit words of the file, with the {@code CheckSum}
+ * field counted as zero, plus the file length. Since {@code 0x10000} is congruent to 1 modulo {@code 0xffff}, the words
+ * are summed as unsigned 32-bit words into a {@code long}, eight bytes per load. The carries are folded back into 32
+ * bits after each chunk, so the sum never overflows however large the file is.
+ * </p>
+ */
+final class ImageChecksum implements Consumer<ByteBuffer> {
+    private long sum;
+    private long position;
+
+    private ImageChecksum() {
+    }
+
+    static int compute(DataAccessor accessor, long checksumPosition) throws IOException {
+        var size = accessor.size();
+        var checksum = new ImageChecksum();
+        accessor.readChunks(0, checksumPosition, checksum);
+        // count the CheckSum field as zero
+        checksum.position += 4;
+        accessor.readChunks(checksumPosition + 4, size - checksumPosition - 4, checksum);
+        return (int) (fold(checksum.sum) + size);
+    }
+
+    @Override
+    public void accept(ByteBuffer chunk) {
+        var off = chunk.position();
+        var end = chunk.limit();
+        // the bytes before the next 4-byte boundary of the file
+        while (off < end && (position & 3) != 0) addByte(chunk.get(off++));
+        var start = off;
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; off + 32 <= end; off += 32) {
+            var l0 = chunk.getLong(off);
+            var l1 = chunk.getLong(off + 8);
+            var l2 = chunk.getLong(off + 16);
+            var l3 = chunk.getLong(off + 24);
+            s0 += (l0 & PEFile.INT_MASK) + (l0 >>> 32);
+            s1 += (l1 & PEFile.INT_MASK) + (l1 >>> 32);
+            s2 += (l2 & PEFile.INT_MASK) + (l2 >>> 32);
+            s3 += (l3 & PEFile.INT_MASK) + (l3 >>> 32);
+        }
+        for (; off + 4 <= end; off += 4) s0 += chunk.getInt(off) & PEFile.INT_MASK;
+        // a chunk is at most 2GiB, so the partial sums can't overflow
+        sum += s0 + s1 + s2 + s3;
+        position += off - start;
+        // the odd bytes are padded with zero
+        while (off < end) addByte(chunk.get(off++));
+        // 0x100000000 is congruent to 1 modulo 0xffff too
+        while ((sum >>> 32) != 0) sum = (sum & PEFile.INT_MASK) + (sum >>> 32);
+    }
+
+    private void addByte(byte b) {
+        sum += (long) (b & 0xff) << ((position & 3) << 3);
+        position++;
+    }
+
+    private static long fold(long sum) {
+        while ((sum >>> 16) != 0) sum = (sum & 0xffff) + (sum >>> 16);
+        return sum;
+    }
+}
@@ -0,0 +1,91 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * An entry of the import directory, it describes the symbols imported from one library.
+ * <p>
+ * The library name and the entries are decoded on first access, so {@link PEFileException} and
+ * {@link java.io.UncheckedIOException} might be thrown by {@link #name()} and {@link #entries()}.
+ * </p>
+ */
+public final class ImportDescriptor {
+    static final int LENGTH = 20;
+    private final PEFile file;
+    private final int originalFirstThunk;
+    private final int timeDateStamp;
+    private final int forwarderChain;
+    private final int nameRva;
+    private final int firstThunk;
+    private volatile String name;
+    private volatile List<ImportEntry> entries;
+
+    ImportDescriptor(PEFile file, int originalFirstThunk, int timeDateStamp, int forwarderChain, int nameRva, int firstThunk) {
+        this.file = file;
+        this.originalFirstThunk = originalFirstThunk;
+        this.timeDateStamp = timeDateStamp;
+        this.forwarderChain = forwarderChain;
+        this.nameRva = nameRva;
+        this.firstThunk = firstThunk;
+    }
+
+    /**
+     * The RVA of the import lookup table, zero for images which only have the import address table.
+     */
+    public int originalFirstThunk() {
+        return originalFirstThunk;
+    }
+
+    public int timeDateStamp() {
+        return timeDateStamp;
+    }
+
+    public int forwarderChain() {
+        return forwarderChain;
+    }
+
+    public int nameRva() {
+        return nameRva;
+    }
+
+    /**
+     * The RVA of the import address table.
+     */
+    public int firstThunk() {
+        return firstThunk;
+    }
+
+    /**
+     * Get the name of the library, the name is interned.
+     */
+    public @NotNull String name() {
+        var n = name;
+        if (n == null) {
+            n = file.readName(nameRva);
+            name = n;
+        }
+        return n;
+    }
+
+    /**
+     * Get the imported symbols.
+     *
+     * @return the list is unmodifiable, the entries are decoded when they are accessed
+     */
+    public @NotNull List<@NotNull ImportEntry> entries() {
+        var list = entries;
+        if (list == null) {
+            var pe32Plus = file.getOptionalHeader().pe32Plus();
+            list = new ImportEntryList(file, originalFirstThunk != 0 ? originalFirstThunk : firstThunk, firstThunk, pe32Plus);
+            entries = list;
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportDescriptor[name=" + name() + ", originalFirstThunk=" + originalFirstThunk + ", timeDateStamp=" + timeDateStamp + ", forwarderChain=" + forwarderChain + ", nameRva=" + nameRva + ", firstThunk=" + firstThunk + "]";
+    }
+}
@@ -0,0 +1,17 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A symbol imported by name or by ordinal.
+ *
+ * @param name     the interned symbol name, will be null if the symbol is imported by ordinal
+ * @param hint     the index into the export name pointer table of the library, will be zero if imported by ordinal
+ * @param ordinal  the ordinal, will be zero if imported by name
+ * @param thunkRva the RVA of the import address table slot of the symbol
+ */
+public record ImportEntry(@Nullable String name, int hint, int ordinal, int thunkRva) {
+    public boolean byOrdinal() {
+        return name == null;
+    }
+}
@@ -0,0 +1,65 @@
+package space.iseki.peparser;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The entries of an import lookup table, an entry is decoded each time it is accessed.
+ */
+final class ImportEntryList extends AbstractList<ImportEntry> implements RandomAccess {
+    private static final int HINT_NAME_RVA_MASK = Integer.MAX_VALUE;
+    private final PEFile file;
+    private final ByteBuffer lookupTable;
+    private final int firstThunk;
+    private final boolean pe32Plus;
+    private final long nameBase;
+    private final int size;
+
+    ImportEntryList(PEFile file, int lookupTableRva, int firstThunk, boolean pe32Plus) {
+        this(file, lookupTableRva, firstThunk, pe32Plus, 0);
+    }
+
+    /**
+     * @param nameBase subtracted from the hint/name addresses, the image base for the tables of old delay-load
+     *                 descriptors which hold VAs, otherwise zero
+     */
+    ImportEntryList(PEFile file, int lookupTableRva, int firstThunk, boolean pe32Plus, long nameBase) {
+        this.file = file;
+        this.nameBase = nameBase;
+        this.lookupTable = file.bufferAt(lookupTableRva);
+        this.firstThunk = firstThunk;
+        this.pe32Plus = pe32Plus;
+        var thunkSize = thunkSize();
+        var n = 0;
+        // the table is terminated by a zero entry
+        while ((n + 1) * thunkSize <= lookupTable.limit() && thunk(n) != 0) n++;
+        this.size = n;
+    }
+
+    private int thunkSize() {
+        return pe32Plus ? 8 : 4;
+    }
+
+    private long thunk(int index) {
+        return pe32Plus ? lookupTable.getLong(index * 8) : lookupTable.getInt(index * 4) & PEFile.INT_MASK;
+    }
+
+    @Override
+    public ImportEntry get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        var thunk = thunk(index);
+        var thunkRva = firstThunk + index * thunkSize();
+        var byOrdinal = pe32Plus ? thunk < 0 : (thunk & 0x80000000L) != 0;
+        if (byOrdinal) return new ImportEntry(null, 0, (int) (thunk & PEFile.SHORT_MASK), thunkRva);
+        var hintNameRva = (int) (thunk - nameBase) & HINT_NAME_RVA_MASK;
+        var hintName = file.bufferAt(hintNameRva, 2);
+        var hint = hintName.getShort(0) & PEFile.SHORT_MASK;
+        return new ImportEntry(file.readName(hintNameRva + 2), hint, 0, thunkRva);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
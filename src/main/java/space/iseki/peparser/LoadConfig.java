@@ -0,0 +1,195 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The load configuration directory, the {@code IMAGE_LOAD_CONFIG_DIRECTORY32} or {@code IMAGE_LOAD_CONFIG_DIRECTORY64}
+ * structure.
+ * <p>
+ * The structure grows with new versions of Windows, its {@link #size()} field tells which fields are present. The fields
+ * beyond the size are reported as zero. The pointers are virtual addresses, not RVAs, as in the file. The tables are
+ * exposed as {@link RvaTable} views of the section data, they are validated when they are accessed and might throw
+ * {@link PEFileException} and {@link java.io.UncheckedIOException}.
+ * </p>
+ */
+public final class LoadConfig {
+    /**
+     * The guard CF function table entries have extra bytes, the count is in these bits of {@link #guardFlags()}.
+     */
+    public static final int GUARD_CF_FUNCTION_TABLE_SIZE_MASK = 0xF0000000;
+    public static final int GUARD_CF_INSTRUMENTED = 0x00000100;
+    public static final int GUARD_CFW_INSTRUMENTED = 0x00000200;
+    public static final int GUARD_CF_FUNCTION_TABLE_PRESENT = 0x00000400;
+    public static final int GUARD_SECURITY_COOKIE_UNUSED = 0x00000800;
+    private final PEFile file;
+    private final ByteBuffer data;
+    private final boolean pe32Plus;
+    private final long imageBase;
+    private final int size;
+
+    LoadConfig(PEFile file, ByteBuffer data, boolean pe32Plus, long imageBase) {
+        this.file = file;
+        this.pe32Plus = pe32Plus;
+        this.imageBase = imageBase;
+        if (data.limit() < 4) throw new PEFileException("load config directory exceeds the section");
+        var size = data.getInt(0);
+        if (size < 4 || size > data.limit()) throw new PEFileException("invalid load config size: " + size);
+        this.size = size;
+        this.data = data.slice(0, size).order(data.order());
+    }
+
+    /**
+     * Get the size of the structure, it depends on the linker.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int timeDateStamp() {
+        return int32(4);
+    }
+
+    public short majorVersion() {
+        return size >= 10 ? data.getShort(8) : 0;
+    }
+
+    public short minorVersion() {
+        return size >= 12 ? data.getShort(10) : 0;
+    }
+
+    public int globalFlagsClear() {
+        return int32(12);
+    }
+
+    public int globalFlagsSet() {
+        return int32(16);
+    }
+
+    public int criticalSectionDefaultTimeout() {
+        return int32(20);
+    }
+
+    public int processHeapFlags() {
+        return int32(pe32Plus ? 72 : 44);
+    }
+
+    /**
+     * Get the VA of the {@code /GS} security cookie.
+     */
+    public long securityCookie() {
+        return pointer(60, 88);
+    }
+
+    /**
+     * Get the VA of the SafeSEH handler table, PE32 only.
+     */
+    public long seHandlerTable() {
+        return pe32Plus ? 0 : pointer(64, 0);
+    }
+
+    public long seHandlerCount() {
+        return pe32Plus ? 0 : pointer(68, 0);
+    }
+
+    public long guardCFCheckFunctionPointer() {
+        return pointer(72, 112);
+    }
+
+    public long guardCFDispatchFunctionPointer() {
+        return pointer(76, 120);
+    }
+
+    public long guardCFFunctionTable() {
+        return pointer(80, 128);
+    }
+
+    public long guardCFFunctionCount() {
+        return pointer(84, 136);
+    }
+
+    /**
+     * Get the CFG flags, e.g. {@link #GUARD_CF_INSTRUMENTED}.
+     */
+    public int guardFlags() {
+        return int32(pe32Plus ? 144 : 88);
+    }
+
+    public long guardAddressTakenIatEntryTable() {
+        return pointer(104, 160);
+    }
+
+    public long guardAddressTakenIatEntryCount() {
+        return pointer(108, 168);
+    }
+
+    public long guardLongJumpTargetTable() {
+        return pointer(112, 176);
+    }
+
+    public long guardLongJumpTargetCount() {
+        return pointer(116, 184);
+    }
+
+    /**
+     * Get the SafeSEH handler table, the RVAs of the valid exception handlers; PE32 only.
+     */
+    public @NotNull RvaTable seHandlers() {
+        return table(seHandlerTable(), seHandlerCount(), 4);
+    }
+
+    /**
+     * Get the guard CF function table (GFIDS), the RVAs of the valid indirect call targets.
+     */
+    public @NotNull RvaTable guardCFFunctions() {
+        return table(guardCFFunctionTable(), guardCFFunctionCount(), cfgStride());
+    }
+
+    /**
+     * Get the guard address-taken IAT entry table (GIATS).
+     */
+    public @NotNull RvaTable guardAddressTakenIatEntries() {
+        return table(guardAddressTakenIatEntryTable(), guardAddressTakenIatEntryCount(), cfgStride());
+    }
+
+    /**
+     * Get the guard long jump target table (GLJS).
+     */
+    public @NotNull RvaTable guardLongJumpTargets() {
+        return table(guardLongJumpTargetTable(), guardLongJumpTargetCount(), cfgStride());
+    }
+
+    private int cfgStride() {
+        return 4 + ((guardFlags() & GUARD_CF_FUNCTION_TABLE_SIZE_MASK) >>> 28);
+    }
+
+    private RvaTable table(long va, long count, int stride) {
+        if (va == 0 || count == 0) return RvaTable.EMPTY;
+        var rva = va - imageBase;
+        if (rva < 0 || rva > PEFile.INT_MASK || count > Integer.MAX_VALUE / stride) throw new PEFileException("invalid table: VA 0x" + Long.toHexString(va) + ", count " + count);
+        var b = file.bufferAt((int) rva, count * stride);
+        if (b.limit() / stride < count) throw new PEFileException("table exceeds the section: VA 0x" + Long.toHexString(va));
+        return new RvaTable(b, (int) count, stride);
+    }
+
+    private int int32(int off) {
+        return off + 4 <= size ? data.getInt(off) : 0;
+    }
+
+    private long pointer(int off32, int off64) {
+        if (pe32Plus) return off64 + 8 <= size ? data.getLong(off64) : 0;
+        return off32 + 4 <= size ? data.getInt(off32) & PEFile.INT_MASK : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadConfig{" +
+               "size=" + size +
+               ", securityCookie=0x" + Long.toHexString(securityCookie()) +
+               ", guardFlags=0x" + Integer.toHexString(guardFlags()) +
+               ", guardCFFunctionCount=" + guardCFFunctionCount() +
+               ", seHandlerCount=" + seHandlerCount() +
+               '}';
+    }
+}
@@ -0,0 +1,14 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A stream header of the .NET metadata root.
+ *
+ * @param name   the name, e.g. {@code #~}, {@code #Strings}
+ * @param offset the offset of the stream from the metadata root
+ * @param size   the size of the stream in bytes
+ * @see ClrMetadata#getStreamBuffer(MetadataStream)
+ */
+public record MetadataStream(@NotNull String name, int offset, int size) {
+}
@@ -0,0 +1,64 @@
+package space.iseki.peparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes NUL-terminated ASCII names and deduplicates them across all files.
+ * <p>
+ * Import and export names repeat massively across files, a lookup in this table compares the bytes in place, so
+ * decoding a known name allocates nothing. Missing names are decoded once and {@linkplain String#intern() interned}.
+ * </p>
+ * <p>
+ * The table is a racy cache: Strings are immutable, so a thread either sees a complete String or a stale slot.
+ * </p>
+ */
+final class NameTable {
+    private static final int TABLE_BITS = 14;
+    private static final String[] TABLE = new String[1 << TABLE_BITS];
+
+    private NameTable() {
+    }
+
+    /**
+     * Read the name at {@code off}, which ends at the first NUL or at the limit of the buffer.
+     */
+    static String read(ByteBuffer buffer, int off) {
+        int hash = 0;
+        int end = off;
+        int limit = buffer.limit();
+        for (; end < limit; end++) {
+            var b = buffer.get(end);
+            if (b == 0) break;
+            hash = 31 * hash + (b & 0xff);
+        }
+        var slot = (hash ^ (hash >>> TABLE_BITS)) & (TABLE.length - 1);
+        var cached = TABLE[slot];
+        if (cached != null && matches(cached, buffer, off, end)) return cached;
+        var bytes = new byte[end - off];
+        buffer.get(off, bytes);
+        var name = new String(bytes, StandardCharsets.ISO_8859_1).intern();
+        TABLE[slot] = name;
+        return name;
+    }
+
+    /**
+     * Compare the name at {@code off} with {@code name} like {@code strcmp}, without decoding it.
+     */
+    static int compare(ByteBuffer buffer, int off, String name) {
+        int limit = buffer.limit();
+        for (int i = 0; ; i++) {
+            int b = off + i < limit ? buffer.get(off + i) & 0xff : 0;
+            int c = i < name.length() ? name.charAt(i) : 0;
+            if (b != c || b == 0) return b - c;
+        }
+    }
+
+    private static boolean matches(String s, ByteBuffer buffer, int off, int end) {
+        if (s.length() != end - off) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != (buffer.get(off + i) & 0xff)) return false;
+        }
+        return true;
+    }
+}
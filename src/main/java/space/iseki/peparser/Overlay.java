@@ -0,0 +1,11 @@
+package space.iseki.peparser;
+
+/**
+ * The overlay, the data appended after the end of the image, e.g. the payload of an installer.
+ *
+ * @param offset the file offset of the overlay, which is the end of the image
+ * @param length the length of the overlay in bytes, the certificate table at the end of the file is not included
+ * @see PEFile#getOverlay()
+ */
+public record Overlay(long offset, long length) {
+}
@@ -1,24 +1,44 @@
 package space.iseki.peparser;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Used to read PE file.
  *
  * <p>
- * Instance of this class is <em>not thread-safe</em>
+ * Instances of this class are thread-safe: files are read with positional reads or from an immutable mapping, and
+ * the lazily parsed structures are published safely. Opening from a {@link SeekableByteChannel} which is not a
+ * {@link FileChannel} is the exception, the reads are serialized since they have to move the channel position.
+ * </p>
+ * <p>
+ * Note that interrupting a thread which is blocked in a read on a {@link FileChannel} closes the channel, so the
+ * file becomes unusable for the other threads too; the memory-mapped mode is not affected.
  * </p>
  */
 public class PEFile implements AutoCloseable {
@@ -27,24 +47,72 @@ public class PEFile implements AutoCloseable {
     public static final short PE32PLUS = 0x020b;
     static final long INT_MASK = 0xffffffffL;
     static final int SHORT_MASK = 0xffff;
+    static final int RT_VERSION = 16;
+    private static final int CHECKSUM_OFFSET = 64;
+    private static final int CERTIFICATE_TABLE_ENTRY_OFFSET_PE32 = 128;
+    private static final int CERTIFICATE_TABLE_ENTRY_OFFSET_PE32PLUS = 144;
+    private static final int MAX_CODEVIEW_LENGTH = 64 * 1024;
+    /**
+     * Linkers emit a handful of debug directory entries, larger directories are rejected instead of being allocated.
+     */
+    private static final int MAX_DEBUG_DIRECTORY_ENTRIES = 4096;
     private static final VarHandle INT_LE_AH = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
     private static final VarHandle SHORT_LE_AH = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
     private static final VarHandle LONG_LE_AH = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE_AH = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
     private static final byte[] PE_SIGNATURE = new byte[]{'P', 'E', 0, 0};
+    private static final short DOS_SIGNATURE = 0x5a4d;
+    /**
+     * The size of the first read when opening a file, it covers the headers of almost all PE files.
+     */
+    private static final int HEADER_READ_LENGTH = 4096;
+    /**
+     * Larger headers are rejected instead of being allocated.
+     */
+    private static final int MAX_HEADER_LENGTH = 16 << 20;
+    /**
+     * Sections larger than this are not copied to the heap as a whole, see {@link #regionData(int)}.
+     */
+    private static final int REGION_CACHE_LIMIT = 16 << 20;
+    /**
+     * The number of bytes read by {@link #bufferAt(int)} in sections which are not cached.
+     */
+    private static final int UNCACHED_WINDOW = 1 << 20;
+    /**
+     * The first read of a name in sections which are not cached, it is doubled until the name is terminated.
+     */
+    private static final int NAME_WINDOW = 256;
+    private static final ByteBuffer UNCACHED_REGION = ByteBuffer.allocate(0);
     private final CoffHeader coffHeader;
     private final OptionalHeader optionalHeader;
+    private final int optionalHeaderPosition;
+    private final RichHeader richHeader;
     private final List<SectionHeader> sections;
-    private final RandomAccessFile raf;
+    private final DataAccessor accessor;
     private final SectionHeader rsrcHeader;
     private final List<ResourceTreeNode> resourceTreeNodes;
+    private final AddressTranslator addressTranslator;
+    private final AtomicReferenceArray<ByteBuffer> regionData;
+    private volatile List<ImportDescriptor> imports;
+    private volatile ExportDirectory exports;
+    private volatile List<WinCertificate> certificates;
+    private volatile List<DebugDirectoryEntry> debugDirectory;
+    private volatile LoadConfig loadConfig;
+    private volatile ExceptionDirectory exceptionDirectory;
+    private volatile List<DelayImportDescriptor> delayImports;
+    private volatile ClrMetadata clrMetadata;
 
-    private PEFile(CoffHeader coffHeader, OptionalHeader optionalHeader, RandomAccessFile raf, List<SectionHeader> sections) throws IOException {
+    private PEFile(CoffHeader coffHeader, OptionalHeader optionalHeader, int optionalHeaderPosition, RichHeader richHeader, DataAccessor accessor, List<SectionHeader> sections) {
         this.coffHeader = coffHeader;
+        this.richHeader = richHeader;
+        this.optionalHeaderPosition = optionalHeaderPosition;
         this.optionalHeader = optionalHeader;
-        this.raf = raf;
+        this.accessor = accessor;
         this.sections = sections;
         this.rsrcHeader = sections.stream().filter(i -> i.name().equals(".rsrc")).findFirst().orElse(null);
-        this.resourceTreeNodes = rsrcHeader == null ? Collections.emptyList() : List.of(readRsrcNode(rsrcHeader.pointerToRawData(), rsrcHeader.pointerToRawData(), 0));
+        this.resourceTreeNodes = rsrcHeader == null ? Collections.emptyList() : new ResourceDirectoryList(this, rsrcHeader.pointerToRawData() & INT_MASK, rsrcHeader.pointerToRawData() & INT_MASK, 0);
+        this.addressTranslator = new AddressTranslator(optionalHeader, sections);
+        this.regionData = new AtomicReferenceArray<>(sections.size() + 1);
     }
 
     /**
@@ -56,34 +124,99 @@ public class PEFile implements AutoCloseable {
      * @throws PEFileException      reading PE file failed, the PE file might be invalid
      */
     public static @NotNull PEFile open(@NotNull File file) throws IOException {
-        var raf = new RandomAccessFile(file, "r");
+        return open(file, new PEOpenOption[0]);
+    }
+
+    /**
+     * Open a PE file with options.
+     *
+     * @param file    the PE file
+     * @param options the options, see {@link PEOpenOption}
+     * @throws IOException          the underlying I/O exception
+     * @throws NullPointerException if any argument is null
+     * @throws PEFileException      reading PE file failed, the PE file might be invalid
+     */
+    public static @NotNull PEFile open(@NotNull File file, @NotNull PEOpenOption @NotNull ... options) throws IOException {
+        var memoryMapped = false;
+        for (PEOpenOption option : options) {
+            switch (option) {
+                case MEMORY_MAPPED -> memoryMapped = true;
+            }
+        }
+        DataAccessor accessor = memoryMapped ? ByteBufferDataAccessor.map(file) : new SeekableByteChannelDataAccessor(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        return open(accessor);
+    }
+
+    /**
+     * Open a PE image held in memory.
+     * <p>
+     * The array is not copied, it must not be modified while the returned {@link PEFile} is in use.
+     * </p>
+     *
+     * @param bytes the PE image
+     * @throws NullPointerException if any argument is null
+     * @throws PEFileException      reading PE file failed, the PE file might be invalid
+     */
+    public static @NotNull PEFile open(byte @NotNull [] bytes) {
+        return open(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Open a PE image held in a buffer.
+     * <p>
+     * The image is the content between the position and the limit of the buffer, the buffer is not copied and its
+     * position is never changed. The content must not be modified while the returned {@link PEFile} is in use.
+     * </p>
+     *
+     * @param buffer the PE image
+     * @throws NullPointerException if any argument is null
+     * @throws PEFileException      reading PE file failed, the PE file might be invalid
+     */
+    public static @NotNull PEFile open(@NotNull ByteBuffer buffer) {
+        try {
+            return open(ByteBufferDataAccessor.wrap(buffer));
+        } catch (IOException e) {
+            // in-memory reads only fail with EOFException, which is already translated
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Open a PE image from a channel.
+     * <p>
+     * The channel will be closed when the returned {@link PEFile} is closed, or if opening fails. A {@link FileChannel}
+     * is read with positional reads, other channels are read under a lock, since the position has to be moved.
+     * </p>
+     *
+     * @param channel the channel
+     * @throws IOException          the underlying I/O exception
+     * @throws NullPointerException if any argument is null
+     * @throws PEFileException      reading PE file failed, the PE file might be invalid
+     */
+    public static @NotNull PEFile open(@NotNull SeekableByteChannel channel) throws IOException {
+        return open(new SeekableByteChannelDataAccessor(channel));
+    }
+
+    private static PEFile open(DataAccessor accessor) throws IOException {
         try {
             try {
-                raf.seek(PE_SIGNATURE_OFFSET);
-                var b4 = new byte[4];
-                raf.readFully(b4);
-                var positionToSignature = (int) INT_LE_AH.get(b4, 0) & INT_MASK;
-                raf.seek(positionToSignature);
-                var coffHeaderData = new byte[CoffHeader.LENGTH + 4];
-                raf.readFully(coffHeaderData);
-                if (!checkPESignature(coffHeaderData)) throw new IllegalArgumentException("PE signature not match");
-                CoffHeader coffHeader = readCoffHeader(coffHeaderData, 4);
-                var optionalHeaderData = new byte[coffHeader.sizeOfOptionalHeader()];
-                raf.readFully(optionalHeaderData);
-                OptionalHeader optionalHeader = readOptionalHeader(optionalHeaderData, 0);
+                var headerData = readHeaders(accessor, true);
+                var positionToSignature = (int) INT_LE_AH.get(headerData, PE_SIGNATURE_OFFSET);
+                CoffHeader coffHeader = readCoffHeader(headerData, positionToSignature + 4);
+                var optionalHeaderPosition = positionToSignature + 4 + CoffHeader.LENGTH;
+                OptionalHeader optionalHeader = readOptionalHeader(headerData, optionalHeaderPosition, coffHeader.sizeOfOptionalHeader());
+                var sectionTablePosition = optionalHeaderPosition + coffHeader.sizeOfOptionalHeader();
                 var sections = new SectionHeader[coffHeader.numbersOfSections()];
-                var sectionData = new byte[SectionHeader.LENGTH * sections.length];
-                raf.readFully(sectionData);
                 for (int i = 0; i < coffHeader.numbersOfSections(); i++) {
-                    sections[i] = readSectionHeader(sectionData, i * SectionHeader.LENGTH);
+                    sections[i] = readSectionHeader(headerData, sectionTablePosition + i * SectionHeader.LENGTH);
                 }
-                return new PEFile(coffHeader, optionalHeader, raf, List.of(sections));
+                return new PEFile(coffHeader, optionalHeader, optionalHeaderPosition, RichHeader.find(headerData, positionToSignature), accessor, List.of(sections));
             } catch (EOFException | IndexOutOfBoundsException | IllegalArgumentException e) {
                 throw new PEFileException(e);
             }
         } catch (Throwable th) {
             try {
-                raf.close();
+                accessor.close();
             } catch (IOException e) {
                 th.addSuppressed(e);
             }
@@ -91,12 +224,115 @@ public class PEFile implements AutoCloseable {
         }
     }
 
-    private static boolean checkPESignature(byte[] data) {
-        return Arrays.equals(PE_SIGNATURE, 0, 4, data, 0, 4);
+    /**
+     * Probe the headers of a PE file.
+     * <p>
+     * Only the DOS header, COFF header and optional header are decoded, usually with a single read. The file is
+     * closed before this method returns.
+     * </p>
+     *
+     * @param file the file
+     * @return the summary, or null if the file is not a PE file
+     * @throws IOException          the underlying I/O exception
+     * @throws NullPointerException if any argument is null
+     */
+    public static @Nullable PEProbe probe(@NotNull File file) throws IOException {
+        try (var accessor = new SeekableByteChannelDataAccessor(FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+            return probe(accessor);
+        }
+    }
+
+    /**
+     * Probe the headers of a PE image held in memory.
+     *
+     * @param bytes the PE image, or at least the headers of it
+     * @return the summary, or null if the data is not a PE image
+     * @throws NullPointerException if any argument is null
+     * @see #probe(File)
+     */
+    public static @Nullable PEProbe probe(byte @NotNull [] bytes) {
+        try {
+            return probe(ByteBufferDataAccessor.wrap(ByteBuffer.wrap(bytes)));
+        } catch (IOException e) {
+            // unreachable, the headers are only read within the bounds
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static @Nullable PEProbe probe(DataAccessor accessor) throws IOException {
+        try {
+            var headerData = readHeaders(accessor, false);
+            var positionToSignature = (int) INT_LE_AH.get(headerData, PE_SIGNATURE_OFFSET);
+            var coffHeader = readCoffHeader(headerData, positionToSignature + 4);
+            var optionalHeader = readOptionalHeader(headerData, positionToSignature + 4 + CoffHeader.LENGTH, coffHeader.sizeOfOptionalHeader());
+            return new PEProbe(coffHeader.machine(), coffHeader.characteristics(), coffHeader.timeDateStamp(), optionalHeader.pe32Plus(), optionalHeader.subsystem(), optionalHeader.dllCharacteristics(), optionalHeader.sizeOfImage());
+        } catch (EOFException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the beginning of the image, up to the end of the optional header or the section table.
+     * <p>
+     * A single read of {@link #HEADER_READ_LENGTH} bytes is enough for almost all files, only unusual headers need
+     * more reads. The DOS and PE signatures are checked before anything beyond the first read is allocated, so
+     * arbitrary non-PE input costs at most one small read.
+     * </p>
+     *
+     * @return the data, the signatures have been checked
+     * @throws EOFException             if the image is too short to hold the headers
+     * @throws IllegalArgumentException if the signatures don't match or the headers are too large
+     */
+    private static byte @NotNull [] readHeaders(DataAccessor accessor, boolean withSectionTable) throws IOException {
+        var size = accessor.size();
+        var data = new byte[(int) Math.min(size, HEADER_READ_LENGTH)];
+        accessor.readFully(0, data);
+        if (data.length < PE_SIGNATURE_OFFSET + 4 || (short) SHORT_LE_AH.get(data, 0) != DOS_SIGNATURE) {
+            throw new IllegalArgumentException("DOS signature not match");
+        }
+        var positionToSignature = (int) INT_LE_AH.get(data, PE_SIGNATURE_OFFSET) & INT_MASK;
+        if (positionToSignature + 4 + CoffHeader.LENGTH > MAX_HEADER_LENGTH) throw new IllegalArgumentException("headers too large");
+        if (positionToSignature + 4 > size) throw new EOFException("headers exceed the end of file");
+        if (!checkPESignature(accessor, data, positionToSignature)) throw new IllegalArgumentException("PE signature not match");
+        while (true) {
+            var required = requiredHeaderLength(data, withSectionTable);
+            if (required <= data.length) return data;
+            if (required > MAX_HEADER_LENGTH) throw new IllegalArgumentException("headers too large");
+            if (required > size) throw new EOFException("headers exceed the end of file");
+            data = new byte[(int) required];
+            accessor.readFully(0, data);
+        }
+    }
+
+    /**
+     * Compute how many bytes are required to decode the headers, based on what is known from {@code data}.
+     */
+    private static long requiredHeaderLength(byte[] data, boolean withSectionTable) {
+        var optionalHeaderPosition = ((int) INT_LE_AH.get(data, PE_SIGNATURE_OFFSET) & INT_MASK) + 4 + CoffHeader.LENGTH;
+        if (data.length < optionalHeaderPosition) return optionalHeaderPosition;
+        var coffHeaderPosition = (int) optionalHeaderPosition - CoffHeader.LENGTH;
+        var numberOfSections = (short) SHORT_LE_AH.get(data, coffHeaderPosition + 2) & SHORT_MASK;
+        var sizeOfOptionalHeader = (short) SHORT_LE_AH.get(data, coffHeaderPosition + 16) & SHORT_MASK;
+        var end = optionalHeaderPosition + sizeOfOptionalHeader;
+        return withSectionTable ? end + (long) numberOfSections * SectionHeader.LENGTH : end;
+    }
+
+    /**
+     * Check the PE signature, reading it separately when it lies beyond the first read.
+     */
+    private static boolean checkPESignature(DataAccessor accessor, byte[] data, long off) throws IOException {
+        if (off + 4 <= data.length) return checkPESignature(data, (int) off);
+        var signature = new byte[4];
+        accessor.readFully(off, signature);
+        return Arrays.equals(PE_SIGNATURE, signature);
+    }
+
+    private static boolean checkPESignature(byte[] data, int off) {
+        return off >= 0 && off <= data.length - 4 && Arrays.equals(PE_SIGNATURE, 0, 4, data, off, off + 4);
     }
 
     private static CoffHeader readCoffHeader(byte[] bytes, int off) {
-        var m = (short) SHORT_LE_AH.get(bytes, 0);
+        var m = (short) SHORT_LE_AH.get(bytes, off);
         var n = (short) SHORT_LE_AH.get(bytes, 2 + off) & 0xffff;
         var t = (int) INT_LE_AH.get(bytes, 4 + off);
         var s = (short) SHORT_LE_AH.get(bytes, 16 + off) & 0xffff;
@@ -104,7 +340,7 @@ public class PEFile implements AutoCloseable {
         return new CoffHeader(m, n, t, s, c);
     }
 
-    private static OptionalHeader readOptionalHeader(byte[] bytes, int off) {
+    private static OptionalHeader readOptionalHeader(byte[] bytes, int off, int len) {
         var reader = new IntReader(bytes, off);
         short magic = reader.readShort();
         boolean pe32Plus = magic == PE32PLUS;
@@ -154,6 +390,7 @@ public class PEFile implements AutoCloseable {
         ImageDataDirectory delayImportTable = readImageDataDirectory(reader, numberOfRvaAndSizes, 13);
         ImageDataDirectory clrRuntimeHeader = readImageDataDirectory(reader, numberOfRvaAndSizes, 14);
         readImageDataDirectory(reader, numberOfRvaAndSizes, 15);
+        if (reader.off - off > len) throw new IllegalArgumentException("optional header exceeds sizeOfOptionalHeader");
         return new OptionalHeader(pe32Plus, majorLinkerVersion, minorLinkerVersion, sizeOfCode, sizeOfInitializedData, sizeOfUninitializedData, addressOfEntryPoint, baseOfCode, baseOfData, imageBase, sectionAlignment, fileAlignment, majorOperatingSystemVersion, minorOperatingSystemVersion, majorImageVersion, minorImageVersion, majorSubsystemVersion, minorSubsystemVersion, win32VersionValue, sizeOfImage, sizeOfHeaders, checksum, subsystem, dllCharacteristics, sizeOfStackReserve, sizeOfStackCommit, sizeOfHeapReserve, sizeOfHeapCommit, loaderFlags, numberOfRvaAndSizes, exportTable, importTable, resourceTable, exceptionTable, certificationTable, baseRelocationTable, debug, globalPtr, tlsTable, loadConfigTable, boundImport, importAddressTable, delayImportTable, clrRuntimeHeader);
     }
 
@@ -200,87 +437,232 @@ public class PEFile implements AutoCloseable {
      * @param node the node
      * @return the data
      * @throws IllegalArgumentException if the node is not a leaf or the node is bad(the address is invalid).
-     * @throws NullPointerException     if {@code node} is null or this file hasn't {@code .rsrc} section.
+     * @throws PEFileException          if the size of the data is 2GiB or more
+     * @throws NullPointerException     if {@code node} is null
      * @throws IOException              underlying I/O exception
      */
     public byte @NotNull [] getResourceData(@NotNull ResourceTreeNode node) throws IOException {
+        var resourceInFileOffset = resourceDataOffset(node);
+        var buffer = new byte[resourceDataLength(node)];
+        accessor.readFully(resourceInFileOffset, buffer);
+        return buffer;
+    }
+
+    /**
+     * Get the resource data associated with the node as a read-only, little-endian buffer.
+     * <p>
+     * For memory-mapped and in-memory images the buffer is a view of the image without copying, otherwise the data is
+     * read into a heap buffer.
+     * </p>
+     *
+     * @param node the node
+     * @return the data
+     * @throws IllegalArgumentException if the node is not a leaf or the node is bad(the address is invalid).
+     * @throws PEFileException          if the size of the data is 2GiB or more
+     * @throws NullPointerException     if {@code node} is null
+     * @throws IOException              underlying I/O exception
+     */
+    public @NotNull ByteBuffer getResourceDataBuffer(@NotNull ResourceTreeNode node) throws IOException {
+        return accessor.slice(resourceDataOffset(node), resourceDataLength(node));
+    }
+
+    /**
+     * Open a stream of the resource data associated with the node.
+     * <p>
+     * The data is read on demand, so large resources can be processed with bounded memory. The stream must not be used
+     * after this file is closed.
+     * </p>
+     *
+     * @param node the node
+     * @return the stream, closing it doesn't close this file
+     * @throws IllegalArgumentException if the node is not a leaf or the node is bad(the address is invalid).
+     * @throws NullPointerException     if {@code node} is null
+     */
+    public @NotNull InputStream openResourceDataStream(@NotNull ResourceTreeNode node) {
+        return accessor.newInputStream(resourceDataOffset(node), node.resourceData().size() & INT_MASK);
+    }
+
+    /**
+     * Write the resource data associated with the node to the channel.
+     * <p>
+     * Files opened from a {@link File} or a {@link FileChannel} use {@link FileChannel#transferTo}, which lets the
+     * operating system copy the data directly; memory-mapped and in-memory images write slices of the image.
+     * </p>
+     *
+     * @param node   the node
+     * @param target the channel
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the node is not a leaf or the node is bad(the address is invalid).
+     * @throws NullPointerException     if any argument is null
+     * @throws IOException              underlying I/O exception
+     */
+    public long transferResourceData(@NotNull ResourceTreeNode node, @NotNull WritableByteChannel target) throws IOException {
+        var offset = resourceDataOffset(node);
+        var len = node.resourceData().size() & INT_MASK;
+        accessor.transferTo(offset, len, target);
+        return len;
+    }
+
+    private long resourceDataOffset(ResourceTreeNode node) {
         if (node.resourceData() == null) {
             throw new IllegalArgumentException("the node is not a leaf");
         }
-        var baseVA = rsrcHeader.virtualAddress() & INT_MASK;
-        var fileOffset = rsrcHeader.pointerToRawData() & INT_MASK;
-        var diff = baseVA - fileOffset;
-        var resourceInFileOffset = (node.resourceData().rva() & INT_MASK) - diff;
-        if (resourceInFileOffset < 0) throw new IllegalArgumentException("resourceInFileOffset < 0");
-        raf.seek(resourceInFileOffset);
-        var buffer = new byte[node.resourceData().size()];
-        raf.readFully(buffer);
-        return buffer;
+        var resourceInFileOffset = addressTranslator.toFileOffset(node.resourceData().rva());
+        if (resourceInFileOffset < 0) throw new IllegalArgumentException("the resource data is not backed by the file");
+        return resourceInFileOffset;
+    }
+
+    /**
+     * Get the size of the resource data as an array length, the streaming methods accept larger sizes.
+     */
+    private static int resourceDataLength(ResourceTreeNode node) {
+        var size = node.resourceData().size();
+        if (size < 0) throw new PEFileException("resource data too large: " + (size & INT_MASK));
+        return size;
+    }
+
+    /**
+     * Read a resource directory, the subdirectories are represented by {@link ResourceDirectoryList} and will be read
+     * when they are accessed.
+     *
+     * @throws PEFileException      the directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    ResourceTreeNode[] readResourceDirectory(long base, long posToTable, int depth) {
+        try {
+            return readRsrcNode(base, posToTable, depth);
+        } catch (EOFException | IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException e) {
+            throw new PEFileException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find an entry of a resource directory without reading the other entries.
+     *
+     * @return the node, or null if not found
+     * @throws PEFileException      the directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    @Nullable ResourceTreeNode findResourceEntry(long base, long posToTable, int depth, @NotNull ResourcePathSegment segment) {
+        try {
+            return findRsrcEntry(base, posToTable, depth, segment);
+        } catch (EOFException | IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException e) {
+            throw new PEFileException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private ResourceTreeNode[] readRsrcNode(long base, long posToTable, int depth) throws IOException {
+        var table = readRsrcTable(posToTable, depth);
+        int numberOfNameEntries = table.numberOfNameEntries() & SHORT_MASK;
+        int totalEntries = numberOfNameEntries + (table.numberOfIdEntries() & SHORT_MASK);
+        var entryDataBuffer = readRsrcEntries(posToTable, totalEntries);
+        var treeNodes = new ResourceTreeNode[totalEntries];
+        for (int i = 0; i < totalEntries; i++) {
+            // named node without id, otherwise use name
+            var name = i < numberOfNameEntries ? readRsrcName(base, entryDataBuffer, i) : null;
+            treeNodes[i] = readRsrcEntry(base, depth, entryDataBuffer, i, name);
+        }
+        return treeNodes;
+    }
+
+    private ResourceTreeNode findRsrcEntry(long base, long posToTable, int depth, ResourcePathSegment segment) throws IOException {
+        var table = readRsrcTable(posToTable, depth);
+        int numberOfNameEntries = table.numberOfNameEntries() & SHORT_MASK;
+        int totalEntries = numberOfNameEntries + (table.numberOfIdEntries() & SHORT_MASK);
+        var entryDataBuffer = readRsrcEntries(posToTable, totalEntries);
+        var name = segment.name();
+        if (name == null) {
+            // the ID entries follow the name entries, sorted in ascending order
+            int low = numberOfNameEntries, high = totalEntries - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = Integer.compareUnsigned((int) INT_LE_AH.get(entryDataBuffer, mid * 8), segment.id());
+                if (c < 0) {
+                    low = mid + 1;
+                } else if (c > 0) {
+                    high = mid - 1;
+                } else {
+                    return readRsrcEntry(base, depth, entryDataBuffer, mid, null);
+                }
+            }
+            return null;
+        }
+        // the name entries are sorted too, but not every resource compiler agrees on the order(case-insensitive or not),
+        // so scan them if the binary search misses
+        int low = 0, high = numberOfNameEntries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            var entryName = readRsrcName(base, entryDataBuffer, mid);
+            int c = entryName.compareTo(name);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return readRsrcEntry(base, depth, entryDataBuffer, mid, entryName);
+            }
+        }
+        for (int i = 0; i < numberOfNameEntries; i++) {
+            var entryName = readRsrcName(base, entryDataBuffer, i);
+            if (entryName.equals(name)) return readRsrcEntry(base, depth, entryDataBuffer, i, entryName);
+        }
+        return null;
+    }
+
+    private ResourceDirectoryTable readRsrcTable(long posToTable, int depth) throws IOException {
         if (depth > 2) {
             throw new IllegalStateException("too deep, Windows only use three level resources");
         }
         assert depth >= 0;
-        assert base >= 0;
-        assert posToTable >= base;
-        raf.seek(posToTable);
         var b16 = new byte[16];
-        raf.readFully(b16);
-        var table = readResourceDirectoryTable(b16, 0);
-        int numberOfNameEntries = table.numberOfNameEntries() & SHORT_MASK;
-        int numberOfIdEntries = table.numberOfIdEntries() & SHORT_MASK;
-        int totalEntries = numberOfNameEntries + numberOfIdEntries;
+        accessor.readFully(posToTable, b16);
+        return readResourceDirectoryTable(b16, 0);
+    }
+
+    private byte[] readRsrcEntries(long posToTable, int totalEntries) throws IOException {
         var entryDataBuffer = new byte[8 * totalEntries];
-        raf.readFully(entryDataBuffer);
-        // read name
-        var nameList = new String[numberOfNameEntries];
-        for (int i = 0; i < nameList.length; i++) {
-            // i * 8, the first field
-            var nameOffset = (int) INT_LE_AH.get(entryDataBuffer, i * 8) & INT_MASK;
-            // clear high bit
-            nameOffset = nameOffset & Integer.MAX_VALUE;
-            // calculate address
-            nameOffset += base;
-            raf.seek(nameOffset);
-            // read string length, but in BE
-            var len = raf.readUnsignedShort();
-            // convert to LE
-            len = (len & 0xff00) >> 8 | (len & 0xff) << 8;
-            len = len * 2;
-            // prepare buffer and read string content
-            var nameBuffer = new byte[len];
-            raf.readFully(nameBuffer);
-            nameList[i] = new String(nameBuffer, StandardCharsets.UTF_16LE);
-        }
-        var treeNodes = new ResourceTreeNode[totalEntries];
-        var rdBuf = new byte[12];
-        for (int i = 0; i < totalEntries; i++) {
-            // i * 8 + 4, the second field, if the highest bit is 1, the integer will be negative .
-            long offset = (int) INT_LE_AH.get(entryDataBuffer, i * 8 + 4);
-            // high bit 0, leaf
-            var isLeaf = offset >= 0;
-            // clear high bit 1
-            offset = offset & Integer.MAX_VALUE;
-            var isNameNode = i < numberOfNameEntries;
-            // named node without id
-            var id = isNameNode ? 0 : (int) INT_LE_AH.get(entryDataBuffer, i * 8);
-            // otherwise use name
-            var name = isNameNode ? nameList[i] : null;
-            if (isLeaf) {
-                var rdOffset = base + offset;
-                raf.seek(rdOffset);
-                raf.readFully(rdBuf);
-                var rd = readResourceData(rdBuf, 0);
-                treeNodes[i] = new ResourceTreeNode(Collections.emptyList(), name, id, rd);
-                continue;
-            }
-            // not leaf, recursive
-            var children = List.of(readRsrcNode(base, offset + base, depth + 1));
-            treeNodes[i] = new ResourceTreeNode(children, name, id, null);
+        accessor.readFully(posToTable + 16, entryDataBuffer);
+        return entryDataBuffer;
+    }
+
+    private String readRsrcName(long base, byte[] entryDataBuffer, int i) throws IOException {
+        // i * 8, the first field
+        var nameOffset = (int) INT_LE_AH.get(entryDataBuffer, i * 8) & INT_MASK;
+        // clear high bit
+        nameOffset = nameOffset & Integer.MAX_VALUE;
+        // calculate address
+        nameOffset += base;
+        // read string length
+        var b2 = new byte[2];
+        accessor.readFully(nameOffset, b2);
+        var len = ((short) SHORT_LE_AH.get(b2, 0) & SHORT_MASK) * 2;
+        // prepare buffer and read string content
+        var nameBuffer = new byte[len];
+        accessor.readFully(nameOffset + 2, nameBuffer);
+        return new String(nameBuffer, StandardCharsets.UTF_16LE);
+    }
+
+    private ResourceTreeNode readRsrcEntry(long base, int depth, byte[] entryDataBuffer, int i, String name) throws IOException {
+        assert base >= 0;
+        // i * 8 + 4, the second field, if the highest bit is 1, the integer will be negative .
+        long offset = (int) INT_LE_AH.get(entryDataBuffer, i * 8 + 4);
+        // high bit 0, leaf
+        var isLeaf = offset >= 0;
+        // clear high bit 1
+        offset = offset & Integer.MAX_VALUE;
+        var id = name != null ? 0 : (int) INT_LE_AH.get(entryDataBuffer, i * 8);
+        if (isLeaf) {
+            var rdBuf = new byte[12];
+            accessor.readFully(base + offset, rdBuf);
+            return new ResourceTreeNode(Collections.emptyList(), name, id, readResourceData(rdBuf, 0));
         }
-        return treeNodes;
+        // not leaf, read on demand
+        var children = new ResourceDirectoryList(this, base, offset + base, depth + 1);
+        return new ResourceTreeNode(children, name, id, null);
     }
 
     /**
@@ -297,6 +679,15 @@ public class PEFile implements AutoCloseable {
         return optionalHeader;
     }
 
+    /**
+     * Get the Rich header, it's decoded from the headers read by {@code open}.
+     *
+     * @return the Rich header, or null if this file hasn't one, e.g. not linked by the Microsoft linker
+     */
+    public @Nullable RichHeader getRichHeader() {
+        return richHeader;
+    }
+
     /**
      * Get parsed section headers.
      *
@@ -311,16 +702,889 @@ public class PEFile implements AutoCloseable {
      * <p>
      * If this file hasn't {@code .rsrc} section, the list will be empty.
      * </p>
+     * <p>
+     * The tree is read lazily, each directory is read when its list is accessed for the first time. So the
+     * {@link PEFileException} and {@link UncheckedIOException} might also be thrown by the methods of the lists.
+     * </p>
      *
      * @return the list of root nodes or empty, unmodifiable.
+     * @throws PEFileException      reading resource directory failed, the PE file might be invalid
+     * @throws UncheckedIOException the underlying I/O exception
      */
     public @NotNull List<ResourceTreeNode> getResourceTree() {
         return resourceTreeNodes;
     }
 
+    /**
+     * Find a resource by its path, e.g. {@code RT_VERSION/1/1033} is
+     * {@code findResource(new ResourcePathSegment(16), new ResourcePathSegment(1), new ResourcePathSegment(1033))}.
+     * <p>
+     * The directory entries are binary searched on each level, only the nodes on the path are read.
+     * </p>
+     *
+     * @param path the path from the root, each segment matches a named node or an ID node
+     * @return the node, or null if not found
+     * @throws IllegalArgumentException the path is empty
+     * @throws PEFileException          reading resource directory failed, the PE file might be invalid
+     * @throws UncheckedIOException     the underlying I/O exception
+     * @see ResourceTreeNode#child(ResourcePathSegment)
+     */
+    public @Nullable ResourceTreeNode findResource(@NotNull ResourcePathSegment @NotNull ... path) {
+        if (path.length == 0) throw new IllegalArgumentException("the path is empty");
+        if (!(resourceTreeNodes instanceof ResourceDirectoryList root)) return null;
+        var node = root.lookup(path[0]);
+        for (int i = 1; i < path.length && node != null; i++) {
+            node = node.child(path[i]);
+        }
+        return node;
+    }
+
+    /**
+     * Get the version resource({@code RT_VERSION}).
+     * <p>
+     * The first language of the first version resource is used, as Windows does for files with a single version
+     * resource. The resource is parsed on each call, see {@link VersionInfo}.
+     * </p>
+     *
+     * @return the version info, or null if this file hasn't version resource
+     * @throws PEFileException      the version resource is invalid
+     * @throws UncheckedIOException the underlying I/O exception while reading the resource tree
+     * @throws IOException          the underlying I/O exception while reading the version resource
+     */
+    public @Nullable VersionInfo getVersionInfo() throws IOException {
+        var type = findResource(new ResourcePathSegment(RT_VERSION));
+        if (type == null || type.children().isEmpty()) return null;
+        var name = type.children().get(0);
+        if (name.children().isEmpty() || name.children().get(0).resourceData() == null) return null;
+        ByteBuffer data;
+        try {
+            data = getResourceDataBuffer(name.children().get(0));
+        } catch (IllegalArgumentException e) {
+            throw new PEFileException("invalid version resource", e);
+        }
+        return VersionInfo.parse(data);
+    }
+
+    /**
+     * Get the import directory.
+     * <p>
+     * The names of libraries and imported symbols are decoded when they are accessed, see {@link ImportDescriptor}.
+     * </p>
+     *
+     * @return the import descriptors, or empty if this file hasn't import table; unmodifiable
+     * @throws PEFileException      reading import directory failed, the PE file might be invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @NotNull List<@NotNull ImportDescriptor> getImports() {
+        var list = imports;
+        if (list == null) {
+            list = readImports();
+            imports = list;
+        }
+        return list;
+    }
+
+    private List<ImportDescriptor> readImports() {
+        var directory = optionalHeader.importTable();
+        if (directory.virtualAddress() == 0) return Collections.emptyList();
+        var data = bufferAt(directory.virtualAddress());
+        var descriptors = new ArrayList<ImportDescriptor>();
+        for (int off = 0; off + ImportDescriptor.LENGTH <= data.limit(); off += ImportDescriptor.LENGTH) {
+            var originalFirstThunk = data.getInt(off);
+            var timeDateStamp = data.getInt(off + 4);
+            var forwarderChain = data.getInt(off + 8);
+            var nameRva = data.getInt(off + 12);
+            var firstThunk = data.getInt(off + 16);
+            // the table is terminated by an empty descriptor
+            if ((originalFirstThunk | timeDateStamp | forwarderChain | nameRva | firstThunk) == 0) break;
+            descriptors.add(new ImportDescriptor(this, originalFirstThunk, timeDateStamp, forwarderChain, nameRva, firstThunk));
+        }
+        return List.copyOf(descriptors);
+    }
+
+    /**
+     * Compute the imphash, the lower-case hex MD5 of the normalized import list.
+     * <p>
+     * The normalization follows the original pefile implementation: each import is {@code library.symbol} in lower
+     * case, the {@code .dll}, {@code .ocx} and {@code .sys} extensions are removed from the library, imports by ordinal
+     * are named by the ordinal tables of common libraries(see {@code OrdinalNames}) or {@code ord<N>}, and the imports
+     * are joined by commas. The names are written to the digest directly, the list is never built as a string.
+     * </p>
+     *
+     * @return the imphash, or null if this file hasn't imports
+     * @throws PEFileException      reading import directory failed, the PE file might be invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable String computeImphash() {
+        var imports = getImports();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is required on every Java platform
+            throw new AssertionError(e);
+        }
+        var scratch = new byte[256];
+        var empty = true;
+        for (var descriptor : imports) {
+            var library = descriptor.name();
+            var dot = library.lastIndexOf('.');
+            var stemLength = dot >= 0 && isImphashStrippedExtension(library, dot + 1) ? dot : library.length();
+            String lowerLibrary = null;
+            for (var entry : descriptor.entries()) {
+                var symbol = entry.name();
+                if (symbol == null) {
+                    if (lowerLibrary == null) lowerLibrary = library.toLowerCase(Locale.ROOT);
+                    symbol = OrdinalNames.lookup(lowerLibrary, entry.ordinal());
+                    if (symbol == null) symbol = "ord" + entry.ordinal();
+                }
+                if (!empty) digest.update((byte) ',');
+                empty = false;
+                updateLowerCase(digest, library, stemLength, scratch);
+                digest.update((byte) '.');
+                updateLowerCase(digest, symbol, symbol.length(), scratch);
+            }
+        }
+        return empty ? null : HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static boolean isImphashStrippedExtension(String library, int off) {
+        return library.length() - off == 3 && (library.regionMatches(true, off, "dll", 0, 3) || library.regionMatches(true, off, "ocx", 0, 3) || library.regionMatches(true, off, "sys", 0, 3));
+    }
+
+    /**
+     * Write the first {@code length} chars of the ASCII name in lower case.
+     */
+    private static void updateLowerCase(MessageDigest digest, String name, int length, byte[] scratch) {
+        for (int off = 0; off < length; off += scratch.length) {
+            var n = Math.min(length - off, scratch.length);
+            for (int i = 0; i < n; i++) {
+                var c = name.charAt(off + i);
+                scratch[i] = (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+            }
+            digest.update(scratch, 0, n);
+        }
+    }
+
+    /**
+     * Get the delay-load import directory.
+     * <p>
+     * The names of libraries and imported symbols are decoded when they are accessed and interned, see
+     * {@link DelayImportDescriptor}.
+     * </p>
+     *
+     * @return the descriptors, or empty if this file hasn't delay-load import table; unmodifiable
+     * @throws PEFileException      reading delay-load import directory failed, the PE file might be invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @NotNull List<@NotNull DelayImportDescriptor> getDelayImports() {
+        var list = delayImports;
+        if (list == null) {
+            list = readDelayImports();
+            delayImports = list;
+        }
+        return list;
+    }
+
+    private List<DelayImportDescriptor> readDelayImports() {
+        var directory = optionalHeader.delayImportTable();
+        if (directory.virtualAddress() == 0) return Collections.emptyList();
+        var data = bufferAt(directory.virtualAddress());
+        var descriptors = new ArrayList<DelayImportDescriptor>();
+        for (int off = 0; off + DelayImportDescriptor.LENGTH <= data.limit(); off += DelayImportDescriptor.LENGTH) {
+            var attributes = data.getInt(off);
+            // the table is terminated by an empty descriptor
+            if (data.getInt(off + 4) == 0 && data.getInt(off + 12) == 0) break;
+            // old linkers wrote VAs
+            var base = (attributes & DelayImportDescriptor.ATTRIBUTE_RVA_BASED) != 0 ? 0 : (int) optionalHeader.imageBase();
+            descriptors.add(new DelayImportDescriptor(this, attributes,
+                    vaToRva(data.getInt(off + 4), base),
+                    vaToRva(data.getInt(off + 8), base),
+                    vaToRva(data.getInt(off + 12), base),
+                    vaToRva(data.getInt(off + 16), base),
+                    vaToRva(data.getInt(off + 20), base),
+                    vaToRva(data.getInt(off + 24), base),
+                    data.getInt(off + 28)));
+        }
+        return List.copyOf(descriptors);
+    }
+
+    private static int vaToRva(int address, int base) {
+        return address == 0 ? 0 : address - base;
+    }
+
+    /**
+     * Get the CLR runtime header of a .NET image.
+     *
+     * @return the header, or null if this file is not a .NET image
+     * @throws PEFileException      the header is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable ClrHeader getClrHeader() {
+        var directory = optionalHeader.clrRuntimeHeader();
+        if (directory.virtualAddress() == 0) return null;
+        var data = bufferAt(directory.virtualAddress(), ClrHeader.LENGTH);
+        if (data.limit() < ClrHeader.LENGTH) throw new PEFileException("CLR runtime header exceeds the section");
+        return new ClrHeader(data.getInt(0), data.getShort(4), data.getShort(6), dataDirectory(data, 8), data.getInt(16), data.getInt(20),
+                dataDirectory(data, 24), dataDirectory(data, 32), dataDirectory(data, 40), dataDirectory(data, 48), dataDirectory(data, 56), dataDirectory(data, 64));
+    }
+
+    private static ImageDataDirectory dataDirectory(ByteBuffer data, int off) {
+        return new ImageDataDirectory(data.getInt(off), data.getInt(off + 4));
+    }
+
+    /**
+     * Get the .NET metadata root and its stream directory.
+     * <p>
+     * The streams are slices of the image, see {@link ClrMetadata}.
+     * </p>
+     *
+     * @return the metadata, or null if this file is not a .NET image
+     * @throws PEFileException      the header or the metadata root is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable ClrMetadata getClrMetadata() {
+        var m = clrMetadata;
+        if (m == null) {
+            var header = getClrHeader();
+            if (header == null) return null;
+            var directory = header.metadata();
+            var data = bufferAt(directory.virtualAddress(), directory.size() & INT_MASK);
+            if ((directory.size() & INT_MASK) > data.limit()) throw new PEFileException("metadata exceeds the section");
+            m = ClrMetadata.parse(data.slice(0, directory.size()).order(ByteOrder.LITTLE_ENDIAN));
+            clrMetadata = m;
+        }
+        return m;
+    }
+
+    /**
+     * Get the TLS directory.
+     *
+     * @return the TLS directory, or null if this file hasn't one
+     * @throws PEFileException      the TLS directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable TlsDirectory getTlsDirectory() {
+        var directory = optionalHeader.tlsTable();
+        if (directory.virtualAddress() == 0) return null;
+        var data = bufferAt(directory.virtualAddress(), optionalHeader.pe32Plus() ? 40 : 24);
+        try {
+            if (optionalHeader.pe32Plus()) {
+                return new TlsDirectory(data.getLong(0), data.getLong(8), data.getLong(16), data.getLong(24), data.getInt(32), data.getInt(36));
+            }
+            return new TlsDirectory(data.getInt(0) & INT_MASK, data.getInt(4) & INT_MASK, data.getInt(8) & INT_MASK, data.getInt(12) & INT_MASK, data.getInt(16), data.getInt(20));
+        } catch (IndexOutOfBoundsException e) {
+            throw new PEFileException("TLS directory exceeds the section", e);
+        }
+    }
+
+    /**
+     * Get the TLS callbacks, they are called by the loader before the entry point.
+     *
+     * @return the VAs of the callbacks, or empty if this file hasn't TLS callbacks
+     * @throws PEFileException      the TLS directory or the callback array is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public long @NotNull [] getTlsCallbacks() {
+        var tls = getTlsDirectory();
+        if (tls == null || tls.addressOfCallBacks() == 0) return new long[0];
+        var rva = tls.addressOfCallBacks() - optionalHeader.imageBase();
+        if (rva < 0 || rva > INT_MASK) throw new PEFileException("invalid TLS callback array address: 0x" + Long.toHexString(tls.addressOfCallBacks()));
+        var data = bufferAt((int) rva);
+        var pointerSize = optionalHeader.pe32Plus() ? 8 : 4;
+        var n = 0;
+        // the array is terminated by a zero entry
+        while ((n + 1) * pointerSize <= data.limit() && (pointerSize == 8 ? data.getLong(n * 8) : data.getInt(n * 4)) != 0) n++;
+        var callbacks = new long[n];
+        for (int i = 0; i < n; i++) callbacks[i] = pointerSize == 8 ? data.getLong(i * 8) : data.getInt(i * 4) & INT_MASK;
+        return callbacks;
+    }
+
+    /**
+     * Get the export directory.
+     * <p>
+     * Only the directory table is read here, names and addresses are looked up in the image when they are requested,
+     * see {@link ExportDirectory}.
+     * </p>
+     *
+     * @return the export directory, or null if this file hasn't export table
+     * @throws PEFileException      reading export directory failed, the PE file might be invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable ExportDirectory getExportDirectory() {
+        var directory = optionalHeader.exportTable();
+        if (directory.virtualAddress() == 0) return null;
+        var e = exports;
+        if (e == null) {
+            e = new ExportDirectory(this, directory, bufferAt(directory.virtualAddress(), 40));
+            exports = e;
+        }
+        return e;
+    }
+
+    /**
+     * Get the entries of the debug directory.
+     * <p>
+     * Only the directory is read, the debug data can be located by {@link DebugDirectoryEntry#pointerToRawData()}.
+     * </p>
+     *
+     * @return the entries, or empty if this file hasn't debug directory; unmodifiable
+     * @throws PEFileException      the debug directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @NotNull List<@NotNull DebugDirectoryEntry> getDebugDirectory() {
+        var list = debugDirectory;
+        if (list == null) {
+            try {
+                list = readDebugDirectory();
+            } catch (EOFException e) {
+                throw new PEFileException("debug directory out of file", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            debugDirectory = list;
+        }
+        return list;
+    }
+
+    private List<DebugDirectoryEntry> readDebugDirectory() throws IOException {
+        var directory = optionalHeader.debug();
+        if (directory.virtualAddress() == 0 || directory.size() == 0) return Collections.emptyList();
+        var position = addressTranslator.toFileOffset(directory.virtualAddress());
+        if (position < 0 || position >= accessor.size()) throw new PEFileException("debug directory is not backed by the file");
+        var size = directory.size() & INT_MASK;
+        var region = addressTranslator.regionOf(directory.virtualAddress());
+        var regionEnd = addressTranslator.regionRawPointer(region) + addressTranslator.regionRawSize(region);
+        if (size > regionEnd - position || size / DebugDirectoryEntry.LENGTH > MAX_DEBUG_DIRECTORY_ENTRIES) {
+            throw new PEFileException("invalid debug directory size: " + size);
+        }
+        var count = Math.min(size, accessor.size() - position) / DebugDirectoryEntry.LENGTH;
+        // read the directory only, not the section containing it
+        var data = new byte[(int) count * DebugDirectoryEntry.LENGTH];
+        accessor.readFully(position, data);
+        var entries = new DebugDirectoryEntry[data.length / DebugDirectoryEntry.LENGTH];
+        for (int i = 0; i < entries.length; i++) {
+            var off = i * DebugDirectoryEntry.LENGTH;
+            entries[i] = new DebugDirectoryEntry(
+                    (int) INT_LE_AH.get(data, off),
+                    (int) INT_LE_AH.get(data, off + 4),
+                    (short) SHORT_LE_AH.get(data, off + 8),
+                    (short) SHORT_LE_AH.get(data, off + 10),
+                    (int) INT_LE_AH.get(data, off + 12),
+                    (int) INT_LE_AH.get(data, off + 16),
+                    (int) INT_LE_AH.get(data, off + 20),
+                    (int) INT_LE_AH.get(data, off + 24));
+        }
+        return List.of(entries);
+    }
+
+    /**
+     * Get the CodeView {@code RSDS} record, which identifies the PDB file of this image.
+     * <p>
+     * Only the debug directory and the record are read, with one small read each, nothing else of the file is parsed.
+     * Records of older formats(e.g. {@code NB10}) are ignored.
+     * </p>
+     *
+     * @return the record, or null if not found
+     * @throws PEFileException      the debug directory or the record is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable CodeViewInfo getCodeViewInfo() {
+        for (var entry : getDebugDirectory()) {
+            if (entry.type() != DebugDirectoryEntry.TYPE_CODEVIEW || (entry.sizeOfData() & INT_MASK) < CodeViewInfo.RSDS_HEADER_LENGTH) continue;
+            long position = entry.pointerToRawData() & INT_MASK;
+            if (position == 0) position = addressTranslator.toFileOffset(entry.addressOfRawData());
+            if (position <= 0) continue;
+            try {
+                var data = new byte[(int) Math.min(entry.sizeOfData() & INT_MASK, MAX_CODEVIEW_LENGTH)];
+                accessor.readFully(position, data);
+                if ((int) INT_LE_AH.get(data, 0) != CodeViewInfo.RSDS_SIGNATURE) continue;
+                // the GUID is stored as Data1(LE 32), Data2(LE 16), Data3(LE 16), Data4(8 bytes)
+                var msb = ((int) INT_LE_AH.get(data, 4) & INT_MASK) << 32 | (long) ((short) SHORT_LE_AH.get(data, 8) & SHORT_MASK) << 16 | ((short) SHORT_LE_AH.get(data, 10) & SHORT_MASK);
+                var lsb = (long) LONG_BE_AH.get(data, 12);
+                var age = (int) INT_LE_AH.get(data, 20);
+                var pathEnd = CodeViewInfo.RSDS_HEADER_LENGTH;
+                while (pathEnd < data.length && data[pathEnd] != 0) pathEnd++;
+                var path = new String(data, CodeViewInfo.RSDS_HEADER_LENGTH, pathEnd - CodeViewInfo.RSDS_HEADER_LENGTH, StandardCharsets.UTF_8);
+                return new CodeViewInfo(new UUID(msb, lsb), age, path);
+            } catch (EOFException e) {
+                throw new PEFileException("CodeView record out of file", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the load configuration directory.
+     * <p>
+     * The structure is read from the section data in place, the tables it points to are read when they are accessed.
+     * </p>
+     *
+     * @return the load config, or null if this file hasn't one
+     * @throws PEFileException      the load config directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable LoadConfig getLoadConfig() {
+        var directory = optionalHeader.loadConfigTable();
+        if (directory.virtualAddress() == 0) return null;
+        var l = loadConfig;
+        if (l == null) {
+            l = new LoadConfig(this, bufferAt(directory.virtualAddress()), optionalHeader.pe32Plus(), optionalHeader.imageBase());
+            loadConfig = l;
+        }
+        return l;
+    }
+
+    /**
+     * Get the exception directory({@code .pdata}) of an x64 or ARM64 image.
+     * <p>
+     * The first call decodes the whole table into a sorted index, see {@link ExceptionDirectory}.
+     * </p>
+     *
+     * @return the exception directory, or null if this file hasn't one or the machine type is neither x64 nor ARM64
+     * @throws PEFileException      the exception directory is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable ExceptionDirectory getExceptionDirectory() {
+        var directory = optionalHeader.exceptionTable();
+        var machine = coffHeader.getMachineType();
+        if (directory.virtualAddress() == 0 || (machine != MachineType.IMAGE_FILE_MACHINE_AMD64 && machine != MachineType.IMAGE_FILE_MACHINE_ARM64)) return null;
+        var e = exceptionDirectory;
+        if (e == null) {
+            var entryLength = machine == MachineType.IMAGE_FILE_MACHINE_AMD64 ? 12 : 8;
+            var data = bufferAt(directory.virtualAddress(), directory.size() & INT_MASK);
+            var count = (int) Math.min(directory.size() & INT_MASK, data.limit()) / entryLength;
+            try {
+                e = machine == MachineType.IMAGE_FILE_MACHINE_AMD64 ? ExceptionDirectory.readAmd64(data, count) : ExceptionDirectory.readArm64(this, data, count);
+            } catch (IndexOutOfBoundsException ex) {
+                throw new PEFileException("invalid exception directory", ex);
+            }
+            exceptionDirectory = e;
+        }
+        return e;
+    }
+
+    /**
+     * Walk the base relocation table, the entries are passed to the consumer in the order of the table.
+     * <p>
+     * The table is read from the section data in place, entries are decoded one by one without allocation.
+     * {@link BaseRelocationConsumer#TYPE_ABSOLUTE} entries are padding and skipped.
+     * </p>
+     *
+     * @param consumer the consumer
+     * @return the number of entries passed to the consumer
+     * @throws PEFileException      the table is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     * @throws NullPointerException if {@code consumer} is null
+     */
+    public int forEachBaseRelocation(@NotNull BaseRelocationConsumer consumer) {
+        var directory = optionalHeader.baseRelocationTable();
+        if (directory.virtualAddress() == 0 || directory.size() == 0) return 0;
+        var data = bufferAt(directory.virtualAddress(), directory.size() & INT_MASK);
+        var end = (int) Math.min(directory.size() & INT_MASK, data.limit());
+        int count = 0;
+        // IMAGE_BASE_RELOCATION: VirtualAddress, SizeOfBlock, followed by 16-bit entries
+        for (int pos = 0; pos + 8 <= end; ) {
+            var pageRva = data.getInt(pos);
+            var blockSize = data.getInt(pos + 4) & INT_MASK;
+            // linkers might pad the table with an empty block
+            if (blockSize == 0) break;
+            if (blockSize < 8 || pos + blockSize > end) throw new PEFileException("invalid base relocation block size: " + blockSize);
+            var blockEnd = pos + (int) blockSize;
+            for (int p = pos + 8; p + 2 <= blockEnd; p += 2) {
+                var entry = data.getShort(p) & SHORT_MASK;
+                var type = entry >>> 12;
+                if (type == BaseRelocationConsumer.TYPE_ABSOLUTE) continue;
+                consumer.accept(pageRva + (entry & 0xfff), type);
+                count++;
+                if (type == BaseRelocationConsumer.TYPE_HIGHADJ) p += 2;
+            }
+            pos = blockEnd;
+        }
+        return count;
+    }
+
+    /**
+     * Get the translator from RVAs to file offsets.
+     */
+    public @NotNull AddressTranslator getAddressTranslator() {
+        return addressTranslator;
+    }
+
+    /**
+     * Get the entries of the attribute certificate table.
+     * <p>
+     * The table is located by a file offset, it's not mapped into memory by the loader. Only the entry headers are read,
+     * the certificates can be accessed by {@link #getCertificateBuffer(WinCertificate)} and
+     * {@link #openCertificateStream(WinCertificate)}.
+     * </p>
+     *
+     * @return the entries, or empty if this file is not signed; unmodifiable
+     * @throws PEFileException      the certificate table is invalid
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @NotNull List<@NotNull WinCertificate> getCertificates() {
+        var list = certificates;
+        if (list == null) {
+            try {
+                list = readCertificates();
+            } catch (EOFException e) {
+                throw new PEFileException("certificate table out of file", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            certificates = list;
+        }
+        return list;
+    }
+
+    private List<WinCertificate> readCertificates() throws IOException {
+        var directory = optionalHeader.certificationTable();
+        if (directory.virtualAddress() == 0 || directory.size() == 0) return Collections.emptyList();
+        long pos = directory.virtualAddress() & INT_MASK;
+        var end = pos + (directory.size() & INT_MASK);
+        if (end > accessor.size()) throw new PEFileException("certificate table out of file");
+        var header = new byte[WinCertificate.HEADER_LENGTH];
+        var list = new ArrayList<WinCertificate>();
+        while (pos + WinCertificate.HEADER_LENGTH <= end) {
+            accessor.readFully(pos, header);
+            // dwLength is unsigned
+            var length = (int) INT_LE_AH.get(header, 0) & INT_MASK;
+            if (length < WinCertificate.HEADER_LENGTH || length > end - pos) throw new PEFileException("invalid certificate length: " + length);
+            var revision = (short) SHORT_LE_AH.get(header, 4);
+            var certificateType = (short) SHORT_LE_AH.get(header, 6);
+            list.add(new WinCertificate(pos + WinCertificate.HEADER_LENGTH, length - WinCertificate.HEADER_LENGTH, revision, certificateType));
+            // the entries are aligned to 8 bytes
+            pos += (length + 7) & ~7L;
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Get the certificate data ({@code bCertificate}) as a read-only, little-endian buffer.
+     * <p>
+     * For memory-mapped and in-memory images the buffer is a view of the image without copying, otherwise the data is
+     * read into a heap buffer.
+     * </p>
+     *
+     * @param certificate the entry, from {@link #getCertificates()}
+     * @return the data, e.g. a DER encoded PKCS#7 {@code SignedData} for {@link WinCertificate#TYPE_PKCS_SIGNED_DATA}
+     * @throws PEFileException      if the certificate is 2GiB or larger
+     * @throws NullPointerException if {@code certificate} is null
+     * @throws IOException          underlying I/O exception
+     */
+    public @NotNull ByteBuffer getCertificateBuffer(@NotNull WinCertificate certificate) throws IOException {
+        if (certificate.length() > Integer.MAX_VALUE) throw new PEFileException("certificate too large: " + certificate.length());
+        return accessor.slice(certificate.offset(), (int) certificate.length());
+    }
+
+    /**
+     * Open a stream of the certificate data ({@code bCertificate}).
+     * <p>
+     * The stream must not be used after this file is closed.
+     * </p>
+     *
+     * @param certificate the entry, from {@link #getCertificates()}
+     * @return the stream, closing it doesn't close this file
+     * @throws NullPointerException if {@code certificate} is null
+     */
+    public @NotNull InputStream openCertificateStream(@NotNull WinCertificate certificate) {
+        return accessor.newInputStream(certificate.offset(), certificate.length());
+    }
+
+    /**
+     * Get the overlay, the data after the end of the image.
+     * <p>
+     * The end of the image is the end of the headers or of the raw data of the last section
+     * ({@code pointerToRawData + sizeOfRawData}), whichever is larger. A certificate table in the tail of the file is
+     * appended by the signing tools, not a part of the payload, so the overlay ends where it begins.
+     * </p>
+     *
+     * @return the overlay, or null if nothing is after the image
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable Overlay getOverlay() {
+        long size;
+        try {
+            size = accessor.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long imageEnd = optionalHeader.sizeOfHeaders() & INT_MASK;
+        for (var section : sections) {
+            if (section.sizeOfRawData() == 0) continue;
+            imageEnd = Math.max(imageEnd, (section.pointerToRawData() & INT_MASK) + (section.sizeOfRawData() & INT_MASK));
+        }
+        var end = size;
+        var certificateTable = optionalHeader.certificationTable();
+        if (certificateTable.virtualAddress() != 0 && certificateTable.size() != 0) {
+            var certificateStart = certificateTable.virtualAddress() & INT_MASK;
+            if (certificateStart >= imageEnd && certificateStart < end) end = certificateStart;
+        }
+        return end > imageEnd ? new Overlay(imageEnd, end - imageEnd) : null;
+    }
+
+    /**
+     * Get the overlay as a read-only, little-endian buffer.
+     * <p>
+     * For memory-mapped and in-memory images the buffer is a view of the image without copying, otherwise the data is
+     * read into a heap buffer. Use {@link #openOverlayStream(Overlay)} or {@link #transferOverlay(Overlay, WritableByteChannel)}
+     * for large overlays.
+     * </p>
+     *
+     * @param overlay the overlay, from {@link #getOverlay()}
+     * @return the data
+     * @throws IllegalArgumentException if the overlay is larger than 2GiB
+     * @throws NullPointerException     if {@code overlay} is null
+     * @throws IOException              underlying I/O exception
+     */
+    public @NotNull ByteBuffer getOverlayBuffer(@NotNull Overlay overlay) throws IOException {
+        if (overlay.length() > Integer.MAX_VALUE) throw new IllegalArgumentException("the overlay is larger than 2GiB");
+        return accessor.slice(overlay.offset(), (int) overlay.length());
+    }
+
+    /**
+     * Open a stream of the overlay.
+     * <p>
+     * The data is read on demand, so overlays of any size can be processed with bounded memory. The stream must not be
+     * used after this file is closed.
+     * </p>
+     *
+     * @param overlay the overlay, from {@link #getOverlay()}
+     * @return the stream, closing it doesn't close this file
+     * @throws NullPointerException if {@code overlay} is null
+     */
+    public @NotNull InputStream openOverlayStream(@NotNull Overlay overlay) {
+        return accessor.newInputStream(overlay.offset(), overlay.length());
+    }
+
+    /**
+     * Write the overlay to the channel.
+     * <p>
+     * Files opened from a {@link File} or a {@link FileChannel} use {@link FileChannel#transferTo}, which lets the
+     * operating system copy the data directly; memory-mapped and in-memory images write slices of the image.
+     * </p>
+     *
+     * @param overlay the overlay, from {@link #getOverlay()}
+     * @param target  the channel
+     * @return the number of bytes written
+     * @throws NullPointerException if any argument is null
+     * @throws IOException          underlying I/O exception
+     */
+    public long transferOverlay(@NotNull Overlay overlay, @NotNull WritableByteChannel target) throws IOException {
+        accessor.transferTo(overlay.offset(), overlay.length(), target);
+        return overlay.length();
+    }
+
+    /**
+     * Compute the Authenticode hash (Authentihash) of this file.
+     * <p>
+     * The whole file is hashed except the {@code CheckSum} field, the certificate table entry of the data directories
+     * and the certificate table itself with anything after it. This matches the hash embedded in the signature of a
+     * file whose certificate table is at the end, which is where the signing tools put it. The data is fed to the digest
+     * from the mapping or the file in chunks, the file is never buffered as a whole.
+     * </p>
+     *
+     * @param digest the digest, e.g. SHA-256; it's updated with the data and then completed
+     * @return the hash
+     * @throws PEFileException      the certificate table is out of the file
+     * @throws IOException          the underlying I/O exception
+     * @throws NullPointerException if {@code digest} is null
+     */
+    public byte @NotNull [] computeAuthenticodeHash(@NotNull MessageDigest digest) throws IOException {
+        var size = accessor.size();
+        long checksumPosition = optionalHeaderPosition + CHECKSUM_OFFSET;
+        long certificateEntryPosition = optionalHeaderPosition + (optionalHeader.pe32Plus() ? CERTIFICATE_TABLE_ENTRY_OFFSET_PE32PLUS : CERTIFICATE_TABLE_ENTRY_OFFSET_PE32);
+        var end = size;
+        var certificateTable = optionalHeader.certificationTable();
+        if (certificateTable.virtualAddress() != 0 && certificateTable.size() != 0) {
+            // the address of the certificate table is a file offset
+            end = certificateTable.virtualAddress() & INT_MASK;
+            if (end < certificateEntryPosition + 8 || end > size) throw new PEFileException("certificate table out of file");
+        }
+        accessor.readChunks(0, checksumPosition, digest::update);
+        if (optionalHeader.numberOfRvaAndSizes() > 4) {
+            accessor.readChunks(checksumPosition + 4, certificateEntryPosition - checksumPosition - 4, digest::update);
+            accessor.readChunks(certificateEntryPosition + 8, end - certificateEntryPosition - 8, digest::update);
+        } else {
+            // no certificate table entry
+            accessor.readChunks(checksumPosition + 4, end - checksumPosition - 4, digest::update);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Compute the Authenticode hash (Authentihash) of this file.
+     *
+     * @param algorithm the digest algorithm, e.g. {@code SHA-256} or {@code SHA-1}
+     * @return the hash
+     * @throws NoSuchAlgorithmException the algorithm is not available
+     * @throws PEFileException          the certificate table is out of the file
+     * @throws IOException              the underlying I/O exception
+     * @throws NullPointerException     if {@code algorithm} is null
+     * @see #computeAuthenticodeHash(MessageDigest)
+     */
+    public byte @NotNull [] computeAuthenticodeHash(@NotNull String algorithm) throws IOException, NoSuchAlgorithmException {
+        return computeAuthenticodeHash(MessageDigest.getInstance(algorithm));
+    }
+
+    /**
+     * Compute the image checksum, the algorithm is the same as {@code CheckSumMappedFile} in {@code imagehlp.dll}.
+     * <p>
+     * The file is summed chunk by chunk from the mapping or the file, eight bytes at a time.
+     * </p>
+     *
+     * @return the checksum
+     * @throws IOException the underlying I/O exception
+     * @see #verifyChecksum()
+     */
+    public int computeChecksum() throws IOException {
+        return ImageChecksum.compute(accessor, optionalHeaderPosition + CHECKSUM_OFFSET);
+    }
+
+    /**
+     * Verify the {@link OptionalHeader#checksum() checksum} in the optional header.
+     * <p>
+     * Most user-mode images have a zero checksum, which is not verified by the loader; this method still compares it.
+     * </p>
+     *
+     * @return whether the stored checksum equals the {@link #computeChecksum() computed} one
+     * @throws IOException the underlying I/O exception
+     */
+    public boolean verifyChecksum() throws IOException {
+        return computeChecksum() == optionalHeader.checksum();
+    }
+
+    /**
+     * Get the raw data of a region (a section or the headers, see {@link AddressTranslator#regionOf(int)}) as a
+     * read-only, little-endian buffer.
+     * <p>
+     * For memory-mapped and in-memory images the buffer is a view of the image, otherwise the region is read with a
+     * single read on first access and cached. Regions larger than {@link #REGION_CACHE_LIMIT} are not copied, since
+     * they would be kept on the heap as long as this file; {@link #UNCACHED_REGION} is returned for them and the
+     * callers read the ranges they need instead.
+     * </p>
+     *
+     * @throws PEFileException      the region exceeds the end of file
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    private ByteBuffer regionData(int region) {
+        var data = regionData.get(region);
+        if (data != null) return data;
+        try {
+            var position = addressTranslator.regionRawPointer(region);
+            var length = Math.min(addressTranslator.regionRawSize(region), Math.max(0, accessor.size() - position));
+            data = length > REGION_CACHE_LIMIT && !accessor.sharesSlices() ? UNCACHED_REGION : accessor.slice(position, (int) Math.min(length, Integer.MAX_VALUE));
+        } catch (EOFException e) {
+            throw new PEFileException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // another thread might have read it too, keep the first one
+        return regionData.compareAndSet(region, null, data) ? data : regionData.get(region);
+    }
+
+    /**
+     * Get a read-only, little-endian buffer from the rva to the end of the raw data of the section containing it.
+     * <p>
+     * In large sections which are not cached(see {@link #regionData(int)}), at most {@link #UNCACHED_WINDOW} bytes are
+     * read, callers which know the length of the data should use {@link #bufferAt(int, long)}.
+     * </p>
+     *
+     * @throws PEFileException      the rva is not backed by the file
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    ByteBuffer bufferAt(int rva) {
+        return bufferAt(rva, UNCACHED_WINDOW);
+    }
+
+    /**
+     * Get a read-only, little-endian buffer from the rva, which holds at least {@code length} bytes unless the raw data
+     * of the section containing it ends before.
+     * <p>
+     * The buffer of a cached section always extends to the end of the section, in large sections exactly
+     * {@code length} bytes are read.
+     * </p>
+     *
+     * @throws PEFileException      the rva is not backed by the file
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    ByteBuffer bufferAt(int rva, long length) {
+        var region = regionOrThrow(rva);
+        var data = regionData(region);
+        if (data != UNCACHED_REGION) {
+            var off = regionDataOffset(region, data, rva);
+            return data.slice(off, data.limit() - off).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        var off = (rva & INT_MASK) - addressTranslator.regionVirtualAddress(region);
+        var position = addressTranslator.regionRawPointer(region) + off;
+        try {
+            var available = Math.min(addressTranslator.regionRawSize(region) - off, accessor.size() - position);
+            if (available <= 0) throw new PEFileException("RVA 0x" + Integer.toHexString(rva) + " is not backed by the file");
+            return accessor.slice(position, (int) Math.min(Math.min(length, available), Integer.MAX_VALUE));
+        } catch (EOFException e) {
+            throw new PEFileException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get a buffer from the rva which holds the whole NUL-terminated name, for sections which are not cached.
+     */
+    private ByteBuffer nameBufferAt(int rva) {
+        for (long length = NAME_WINDOW; ; length *= 2) {
+            var data = bufferAt(rva, length);
+            if (data.limit() < length) return data;
+            for (int i = 0; i < data.limit(); i++) {
+                if (data.get(i) == 0) return data;
+            }
+        }
+    }
+
+    /**
+     * Read the NUL-terminated ASCII name at the rva, the name is deduplicated by {@link NameTable}.
+     *
+     * @throws PEFileException      the rva is not backed by the file
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    String readName(int rva) {
+        var region = regionOrThrow(rva);
+        var data = regionData(region);
+        if (data == UNCACHED_REGION) return NameTable.read(nameBufferAt(rva), 0);
+        return NameTable.read(data, regionDataOffset(region, data, rva));
+    }
+
+    /**
+     * Compare the NUL-terminated ASCII name at the rva with {@code name} in place, like {@code strcmp}.
+     *
+     * @throws PEFileException      the rva is not backed by the file
+     * @throws UncheckedIOException the underlying I/O exception
+     */
+    int compareName(int rva, String name) {
+        var region = regionOrThrow(rva);
+        var data = regionData(region);
+        if (data == UNCACHED_REGION) return NameTable.compare(nameBufferAt(rva), 0, name);
+        return NameTable.compare(data, regionDataOffset(region, data, rva), name);
+    }
+
+    private int regionOrThrow(int rva) {
+        var region = addressTranslator.regionOf(rva);
+        if (region < 0) throw new PEFileException("RVA 0x" + Integer.toHexString(rva) + " is not in any section");
+        return region;
+    }
+
+    private int regionDataOffset(int region, ByteBuffer data, int rva) {
+        var off = (rva & INT_MASK) - addressTranslator.regionVirtualAddress(region);
+        if (off >= data.limit()) throw new PEFileException("RVA 0x" + Integer.toHexString(rva) + " is not backed by the file");
+        return (int) off;
+    }
+
     @Override
     public void close() throws Exception {
-        this.raf.close();
+        this.accessor.close();
     }
 
 }
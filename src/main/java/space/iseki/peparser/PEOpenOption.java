@@ -0,0 +1,16 @@
+package space.iseki.peparser;
+
+/**
+ * Options to configure how a PE file is opened.
+ *
+ * @see PEFile#open(java.io.File, PEOpenOption...)
+ */
+public enum PEOpenOption {
+    /**
+     * Map the file into memory, all structures are decoded from the mapped memory without further system calls.
+     * <p>
+     * The mapping is released when it becomes unreachable, not when the {@link PEFile} is closed.
+     * </p>
+     */
+    MEMORY_MAPPED,
+}
@@ -0,0 +1,46 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A summary of the headers of a PE file, returned by {@link PEFile#probe(java.io.File)}.
+ *
+ * @param machine            see {@link CoffHeader#machine()}
+ * @param characteristics    see {@link CoffHeader#characteristics()}
+ * @param timeDateStamp      see {@link CoffHeader#timeDateStamp()}
+ * @param pe32Plus           see {@link OptionalHeader#pe32Plus()}
+ * @param subsystem          see {@link OptionalHeader#subsystem()}
+ * @param dllCharacteristics see {@link OptionalHeader#dllCharacteristics()}
+ * @param sizeOfImage        see {@link OptionalHeader#sizeOfImage()}
+ */
+public record PEProbe(short machine,
+                      short characteristics,
+                      int timeDateStamp,
+                      boolean pe32Plus,
+                      short subsystem,
+                      short dllCharacteristics,
+                      int sizeOfImage) {
+
+    public @Nullable MachineType getMachineType() {
+        return MachineType.of(machine);
+    }
+
+    public @Nullable WindowsSubsystem getWindowsSubsystem() {
+        return WindowsSubsystem.of(subsystem);
+    }
+
+    public boolean contains(Characteristic characteristic) {
+        return (characteristic.value & characteristics) != 0;
+    }
+
+    public boolean contains(DllCharacteristic dllCharacteristic) {
+        return (dllCharacteristic.value & dllCharacteristics) != 0;
+    }
+
+    /**
+     * Check whether the image is a DLL({@link Characteristic#IMAGE_FILE_DLL}).
+     */
+    public boolean isDll() {
+        return contains(Characteristic.IMAGE_FILE_DLL);
+    }
+}
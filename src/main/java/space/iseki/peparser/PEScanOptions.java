@@ -0,0 +1,57 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Options for {@link PEScanner}.
+ *
+ * @param parallelism         the number of worker threads
+ * @param maxInFlight         the maximum number of files being parsed or waiting to be consumed at the same time
+ * @param followLinks         follow symbolic links while walking directories
+ * @param scanArchives        also scan the entries of ZIP archives (including JAR files)
+ * @param maxArchiveEntrySize archive entries are read into memory, larger entries are reported as failures
+ * @param openOptions         the options to open plain files with
+ */
+public record PEScanOptions(int parallelism,
+                            int maxInFlight,
+                            boolean followLinks,
+                            boolean scanArchives,
+                            long maxArchiveEntrySize,
+                            @NotNull Set<@NotNull PEOpenOption> openOptions) {
+    public PEScanOptions {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        if (maxArchiveEntrySize < 0 || maxArchiveEntrySize > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("maxArchiveEntrySize out of range");
+        openOptions = Set.copyOf(openOptions);
+    }
+
+    /**
+     * One worker per processor, archives are not scanned.
+     */
+    public static @NotNull PEScanOptions defaults() {
+        var processors = Runtime.getRuntime().availableProcessors();
+        return new PEScanOptions(processors, processors * 4, false, false, 256 << 20, Set.of());
+    }
+
+    public @NotNull PEScanOptions withParallelism(int parallelism) {
+        return new PEScanOptions(parallelism, maxInFlight, followLinks, scanArchives, maxArchiveEntrySize, openOptions);
+    }
+
+    public @NotNull PEScanOptions withMaxInFlight(int maxInFlight) {
+        return new PEScanOptions(parallelism, maxInFlight, followLinks, scanArchives, maxArchiveEntrySize, openOptions);
+    }
+
+    public @NotNull PEScanOptions withFollowLinks(boolean followLinks) {
+        return new PEScanOptions(parallelism, maxInFlight, followLinks, scanArchives, maxArchiveEntrySize, openOptions);
+    }
+
+    public @NotNull PEScanOptions withScanArchives(boolean scanArchives) {
+        return new PEScanOptions(parallelism, maxInFlight, followLinks, scanArchives, maxArchiveEntrySize, openOptions);
+    }
+
+    public @NotNull PEScanOptions withOpenOptions(@NotNull PEOpenOption @NotNull ... openOptions) {
+        return new PEScanOptions(parallelism, maxInFlight, followLinks, scanArchives, maxArchiveEntrySize, Set.of(openOptions));
+    }
+}
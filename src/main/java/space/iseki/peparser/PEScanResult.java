@@ -0,0 +1,18 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of scanning one PE file with {@link PEScanner}.
+ *
+ * @param target the scanned file
+ * @param value  the value returned by the handler, will be null if scanning failed
+ * @param error  the failure, e.g. a {@link PEFileException} for an invalid file, will be null if scanning succeeded
+ * @param <R>    the type of the value
+ */
+public record PEScanResult<R>(@NotNull PEScanTarget target, @Nullable R value, @Nullable Exception error) {
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
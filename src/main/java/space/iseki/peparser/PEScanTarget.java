@@ -0,0 +1,19 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * A file scanned by {@link PEScanner}.
+ *
+ * @param path      the path of the file, or of the archive which contains the entry
+ * @param entryName the name of the archive entry, will be null if the target is a plain file
+ */
+public record PEScanTarget(@NotNull Path path, @Nullable String entryName) {
+    @Override
+    public String toString() {
+        return entryName == null ? path.toString() : path + "!/" + entryName;
+    }
+}
@@ -0,0 +1,355 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipFile;
+
+/**
+ * Scans directory trees for PE files and parses them in parallel.
+ * <p>
+ * Files are sniffed by their {@code MZ} and {@code PE\0\0} signatures with two small reads, other files are skipped
+ * silently. Each PE file is opened and passed to a {@link Handler} on a worker thread, the number of files in flight,
+ * including results which haven't been consumed yet, is bounded by {@link PEScanOptions#maxInFlight()}. Failures, e.g. {@link PEFileException} for invalid files or
+ * unreadable directories, are reported per file as {@link PEScanResult#error()} and never abort the scan.
+ * </p>
+ */
+public final class PEScanner {
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private PEScanner() {
+    }
+
+    /**
+     * Parses a PE file found by the scanner, it's called on worker threads.
+     *
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    public interface Handler<R> {
+        /**
+         * Handle a PE file, the file is closed after this method returns.
+         */
+        R handle(@NotNull PEScanTarget target, @NotNull PEFile file) throws Exception;
+    }
+
+    /**
+     * Scan the directory tree (or the single file) at {@code root}.
+     * <p>
+     * The scan runs in the background while the stream is consumed, the results are in completion order. The stream
+     * must be closed if it isn't consumed completely, closing it cancels the scan.
+     * </p>
+     *
+     * @param root    the directory or file
+     * @param options the options
+     * @param handler the handler
+     * @return the stream of results
+     * @throws NullPointerException if any argument is null
+     */
+    public static <R> @NotNull Stream<@NotNull PEScanResult<R>> scan(@NotNull Path root, @NotNull PEScanOptions options, @NotNull Handler<R> handler) {
+        return new Scan<>(root, options, handler).start();
+    }
+
+    /**
+     * Scan the directory tree (or the single file) at {@code root}, the results are passed to the consumer on the
+     * calling thread.
+     *
+     * @param root     the directory or file
+     * @param options  the options
+     * @param handler  the handler
+     * @param consumer the consumer of results
+     * @throws NullPointerException if any argument is null
+     * @see #scan(Path, PEScanOptions, Handler)
+     */
+    public static <R> void scan(@NotNull Path root, @NotNull PEScanOptions options, @NotNull Handler<R> handler, @NotNull Consumer<? super PEScanResult<R>> consumer) {
+        try (var results = scan(root, options, handler)) {
+            results.forEach(consumer);
+        }
+    }
+
+    private enum Kind {
+        OTHER, PE, ARCHIVE
+    }
+
+    /**
+     * Detect the kind of the file by its signatures.
+     */
+    private static Kind sniff(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(PEFile.PE_SIGNATURE_OFFSET + 4).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            if (header.position() >= ZIP_SIGNATURE.length && header.slice(0, ZIP_SIGNATURE.length).equals(ByteBuffer.wrap(ZIP_SIGNATURE))) {
+                return Kind.ARCHIVE;
+            }
+            if (header.hasRemaining() || header.get(0) != 'M' || header.get(1) != 'Z') return Kind.OTHER;
+            var signature = ByteBuffer.allocate(4);
+            var position = header.getInt(PEFile.PE_SIGNATURE_OFFSET) & PEFile.INT_MASK;
+            while (signature.hasRemaining() && channel.read(signature, position + signature.position()) >= 0) ;
+            return signature.array()[0] == 'P' && signature.array()[1] == 'E' && signature.array()[2] == 0 && signature.array()[3] == 0 ? Kind.PE : Kind.OTHER;
+        }
+    }
+
+    private static final class Scan<R> {
+        private static final Object END = new Object();
+        private final Path root;
+        private final PEScanOptions options;
+        private final Handler<R> handler;
+        private final PEOpenOption[] openOptions;
+        private final BlockingQueue<Object> results;
+        /**
+         * A permit is held by each running task, and passed on to the result it emits until the result is consumed.
+         */
+        private final Semaphore inFlight;
+        /**
+         * The producer and each submitted task are registered, the scan is done when all of them have arrived.
+         */
+        private final Phaser tasks = new Phaser(1);
+        private final ExecutorService workers;
+        private final Thread producer;
+        private volatile boolean closed;
+
+        Scan(Path root, PEScanOptions options, Handler<R> handler) {
+            this.root = root;
+            this.options = options;
+            this.handler = handler;
+            this.openOptions = options.openOptions().toArray(new PEOpenOption[0]);
+            // bounded by the permits
+            this.results = new LinkedBlockingQueue<>();
+            this.inFlight = new Semaphore(options.maxInFlight());
+            this.workers = Executors.newFixedThreadPool(options.parallelism(), r -> newThread(r, "peparser-scanner-worker-"));
+            this.producer = newThread(this::walk, "peparser-scanner-");
+        }
+
+        private static Thread newThread(Runnable r, String prefix) {
+            var thread = new Thread(r, prefix + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        Stream<PEScanResult<R>> start() {
+            producer.start();
+            var spliterator = new Spliterators.AbstractSpliterator<PEScanResult<R>>(Long.MAX_VALUE, Spliterator.NONNULL) {
+                @Override
+                @SuppressWarnings("unchecked")
+                public boolean tryAdvance(Consumer<? super PEScanResult<R>> action) {
+                    Object result;
+                    try {
+                        result = results.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        close();
+                        throw new CancellationException("interrupted while waiting for scan results");
+                    }
+                    if (result == END) return false;
+                    inFlight.release();
+                    action.accept((PEScanResult<R>) result);
+                    return true;
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(this::close);
+        }
+
+        private void close() {
+            closed = true;
+            producer.interrupt();
+            workers.shutdownNow();
+            results.clear();
+        }
+
+        private void walk() {
+            try {
+                var visitOptions = options.followLinks() ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class);
+                Files.walkFileTree(root, visitOptions, Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) submit(file);
+                        return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        report(new PEScanTarget(file, null), exc);
+                        return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                        if (exc != null) report(new PEScanTarget(dir, null), exc);
+                        return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                report(new PEScanTarget(root, null), e);
+            }
+            try {
+                // wait for the running tasks, their results are queued before the end
+                tasks.awaitAdvanceInterruptibly(tasks.arrive());
+                if (!closed) results.put(END);
+            } catch (InterruptedException e) {
+                // closed
+            } finally {
+                workers.shutdown();
+            }
+        }
+
+        private void submit(Path file) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                closed = true;
+                return;
+            }
+            tasks.register();
+            try {
+                workers.execute(() -> {
+                    try {
+                        scanFile(file);
+                    } finally {
+                        tasks.arriveAndDeregister();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the workers are shut down, the scan is closed
+                tasks.arriveAndDeregister();
+                inFlight.release();
+            }
+        }
+
+        /**
+         * Scan a file, the permit of the task is passed on to the result, or released if there is none.
+         */
+        private void scanFile(Path path) {
+            var target = new PEScanTarget(path, null);
+            Kind kind;
+            try {
+                kind = sniff(path);
+            } catch (IOException e) {
+                emit(target, null, e);
+                return;
+            }
+            if (kind == Kind.ARCHIVE && options.scanArchives()) {
+                scanArchive(path);
+            } else if (kind == Kind.PE) {
+                R value = null;
+                Exception error = null;
+                try {
+                    value = handle(target, PEFile.open(path.toFile(), openOptions));
+                } catch (Exception e) {
+                    value = null;
+                    error = e;
+                }
+                emit(target, value, error);
+            } else {
+                inFlight.release();
+            }
+        }
+
+        /**
+         * Scan the entries of an archive, a permit is acquired again for each entry after the first result.
+         */
+        private void scanArchive(Path path) {
+            var permit = true;
+            try (var zip = new ZipFile(path.toFile())) {
+                var entries = zip.entries();
+                while (entries.hasMoreElements() && !closed) {
+                    var entry = entries.nextElement();
+                    if (entry.isDirectory()) continue;
+                    if (!permit) {
+                        inFlight.acquire();
+                        permit = true;
+                    }
+                    var target = new PEScanTarget(path, entry.getName());
+                    R value;
+                    try (var input = zip.getInputStream(entry)) {
+                        var magic = input.readNBytes(2);
+                        if (magic.length < 2 || magic[0] != 'M' || magic[1] != 'Z') continue;
+                        var limit = (int) options.maxArchiveEntrySize();
+                        var rest = input.readNBytes(Math.max(0, limit - magic.length + 1));
+                        if (magic.length + rest.length > limit) throw new IOException("archive entry is larger than " + limit + " bytes");
+                        var bytes = new byte[magic.length + rest.length];
+                        System.arraycopy(magic, 0, bytes, 0, magic.length);
+                        System.arraycopy(rest, 0, bytes, magic.length, rest.length);
+                        if (PEFile.probe(bytes) == null) continue;
+                        value = handle(target, PEFile.open(bytes));
+                    } catch (Exception e) {
+                        permit = false;
+                        emit(target, null, e);
+                        continue;
+                    }
+                    permit = false;
+                    emit(target, value, null);
+                }
+            } catch (IOException e) {
+                try {
+                    if (!permit) inFlight.acquire();
+                    permit = false;
+                    emit(new PEScanTarget(path, null), null, e);
+                } catch (InterruptedException ex) {
+                    // closed
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } finally {
+                if (permit) inFlight.release();
+            }
+        }
+
+        /**
+         * Pass the file to the handler and close it.
+         */
+        // PEFile.close() is declared to throw Exception, but never throws InterruptedException
+        @SuppressWarnings("try")
+        private R handle(PEScanTarget target, PEFile file) throws Exception {
+            try (file) {
+                return handler.handle(target, file);
+            }
+        }
+
+        /**
+         * Report a failure found by the producer, which doesn't hold a permit.
+         */
+        private void report(PEScanTarget target, Exception error) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                closed = true;
+                return;
+            }
+            emit(target, null, error);
+        }
+
+        /**
+         * Emit a result, the permit of the caller is passed on to it.
+         */
+        private void emit(PEScanTarget target, R value, Exception error) {
+            if (closed) return;
+            results.add(new PEScanResult<>(target, value, error));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The entries of a resource directory, they are read from the file on first access.
+ */
+final class ResourceDirectoryList extends AbstractList<ResourceTreeNode> implements RandomAccess {
+    private final PEFile file;
+    private final long base;
+    private final long posToTable;
+    private final int depth;
+    private volatile ResourceTreeNode[] nodes;
+
+    ResourceDirectoryList(PEFile file, long base, long posToTable, int depth) {
+        this.file = file;
+        this.base = base;
+        this.posToTable = posToTable;
+        this.depth = depth;
+    }
+
+    private ResourceTreeNode[] nodes() {
+        var n = nodes;
+        if (n == null) {
+            // reading is idempotent, a racing thread at worst reads the directory twice
+            n = file.readResourceDirectory(base, posToTable, depth);
+            nodes = n;
+        }
+        return n;
+    }
+
+    /**
+     * Find the entry matches the segment, the directory entries are binary searched in the file if the list hasn't been
+     * read yet.
+     */
+    @Nullable ResourceTreeNode lookup(@NotNull ResourcePathSegment segment) {
+        var n = nodes;
+        if (n == null) return file.findResourceEntry(base, posToTable, depth, segment);
+        for (var node : n) {
+            if (node.matches(segment)) return node;
+        }
+        return null;
+    }
+
+    @Override
+    public ResourceTreeNode get(int index) {
+        return nodes()[index];
+    }
+
+    @Override
+    public int size() {
+        return nodes().length;
+    }
+}
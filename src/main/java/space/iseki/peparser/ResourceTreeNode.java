@@ -8,7 +8,8 @@ import java.util.List;
 /**
  * Represents a resource in the resource tree({@code .rsrc} section)
  *
- * @param children the list must be immutable, for leaf node, the field will be an empty list
+ * @param children the list must be immutable, for leaf node, the field will be an empty list; lists created by
+ *                 {@link PEFile} read the directory from the file on first access
  * @param name will be null if the node hasn't a name(ID resource)
  * @param id will be zero if the node has a name(Name resource)
  * @param resourceData the resource data record, will be null if the node is not a leaf
@@ -17,6 +18,31 @@ public record ResourceTreeNode(@NotNull List<@NotNull ResourceTreeNode> children
                                @Nullable String name,
                                int id,
                                @Nullable ResourceData resourceData) {
+    /**
+     * Find the child node by the path segment.
+     * <p>
+     * For the nodes read from {@link PEFile}, the directory entries are binary searched, the siblings of the found
+     * node are not read.
+     * </p>
+     *
+     * @param segment the segment, matches a named node if {@link ResourcePathSegment#name()} is not null, otherwise
+     *                matches an ID node
+     * @return the child node, or null if not found
+     * @throws PEFileException      reading resource directory failed, the PE file might be invalid
+     * @throws java.io.UncheckedIOException the underlying I/O exception
+     */
+    public @Nullable ResourceTreeNode child(@NotNull ResourcePathSegment segment) {
+        if (children instanceof ResourceDirectoryList list) return list.lookup(segment);
+        for (var child : children) {
+            if (child.matches(segment)) return child;
+        }
+        return null;
+    }
+
+    boolean matches(ResourcePathSegment segment) {
+        return segment.name() != null ? segment.name().equals(name) : name == null && id == segment.id();
+    }
+
     void buildString(StringBuilder builder, int off) {
         assert off >= 0;
         builder.append("  ".repeat(off));
@@ -0,0 +1,206 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * The Rich header, the undocumented record of the tools used by the Microsoft linker, between the DOS stub and the PE
+ * signature.
+ * <p>
+ * It is decoded from the header bytes already read by {@link PEFile#open(java.io.File)}, no extra I/O is needed. The
+ * entries are kept in packed {@code int} arrays, each entry is a {@code comp.id}({@link #productId(int) product ID}
+ * and {@link #buildNumber(int) build number}) with a use count.
+ * </p>
+ *
+ * @see PEFile#getRichHeader()
+ */
+public final class RichHeader {
+    private static final VarHandle INT_LE_AH = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int RICH_SIGNATURE = 0x68636952;
+    private static final int DANS_SIGNATURE = 0x536E6144;
+    /**
+     * The DOS header and the smallest DOS stub, the Rich header can't start earlier.
+     */
+    private static final int MIN_OFFSET = 0x40;
+    private final int offset;
+    private final int key;
+    private final int[] compIds;
+    private final int[] counts;
+    private final byte[] clearData;
+    private final boolean checksumValid;
+    private volatile String hash;
+
+    private RichHeader(int offset, int key, int[] compIds, int[] counts, byte[] clearData, boolean checksumValid) {
+        this.offset = offset;
+        this.key = key;
+        this.compIds = compIds;
+        this.counts = counts;
+        this.clearData = clearData;
+        this.checksumValid = checksumValid;
+    }
+
+    /**
+     * Find and decode the Rich header before the PE signature.
+     *
+     * @param data        the headers, from offset 0 of the file
+     * @param peSignature the offset of the PE signature
+     * @return the Rich header, or null if not found
+     */
+    static @Nullable RichHeader find(byte @NotNull [] data, int peSignature) {
+        var end = Math.min(peSignature, data.length) & ~3;
+        // the Rich signature is followed by the key, both dword aligned
+        var rich = -1;
+        for (int p = end - 8; p >= MIN_OFFSET; p -= 4) {
+            if ((int) INT_LE_AH.get(data, p) == RICH_SIGNATURE) {
+                rich = p;
+                break;
+            }
+        }
+        if (rich < 0) return null;
+        var key = (int) INT_LE_AH.get(data, rich + 4);
+        var dans = -1;
+        for (int p = rich - 4; p >= MIN_OFFSET; p -= 4) {
+            if (((int) INT_LE_AH.get(data, p) ^ key) == DANS_SIGNATURE) {
+                dans = p;
+                break;
+            }
+        }
+        // DanS is followed by three zero dwords, then the entries
+        if (dans < 0 || rich - dans < 16 || (rich - dans - 16) % 8 != 0) return null;
+        var clearData = new byte[rich - dans];
+        for (int i = 0; i < clearData.length; i += 4) INT_LE_AH.set(clearData, i, (int) INT_LE_AH.get(data, dans + i) ^ key);
+        var n = (clearData.length - 16) / 8;
+        var compIds = new int[n];
+        var counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            compIds[i] = (int) INT_LE_AH.get(clearData, 16 + i * 8);
+            counts[i] = (int) INT_LE_AH.get(clearData, 16 + i * 8 + 4);
+        }
+        return new RichHeader(dans, key, compIds, counts, clearData, checksum(data, dans, compIds, counts) == key);
+    }
+
+    /**
+     * The checksum written by the linker as the key: the DOS header and stub(except {@code e_lfanew}) and the entries,
+     * each rotated.
+     */
+    private static int checksum(byte[] data, int dans, int[] compIds, int[] counts) {
+        var sum = dans;
+        for (int i = 0; i < dans; i++) {
+            if (i >= PEFile.PE_SIGNATURE_OFFSET && i < PEFile.PE_SIGNATURE_OFFSET + 4) continue;
+            sum += Integer.rotateLeft(data[i] & 0xff, i);
+        }
+        for (int i = 0; i < compIds.length; i++) sum += Integer.rotateLeft(compIds[i], counts[i]);
+        return sum;
+    }
+
+    /**
+     * Get the file offset of the header, where the {@code DanS} signature is.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * Get the XOR key, which is also the checksum.
+     */
+    public int key() {
+        return key;
+    }
+
+    /**
+     * Whether the key matches the checksum of the DOS header and the entries; a mismatch suggests the header was
+     * tampered with or transplanted.
+     */
+    public boolean isChecksumValid() {
+        return checksumValid;
+    }
+
+    /**
+     * Get the number of entries.
+     */
+    public int size() {
+        return compIds.length;
+    }
+
+    /**
+     * Get the {@code comp.id} of the entry, the product ID in the high 16 bits and the build number in the low 16 bits.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int compId(int index) {
+        return compIds[index];
+    }
+
+    /**
+     * Get the product ID of the entry, it identifies the tool and its version, e.g. the C++ compiler of a VS release.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int productId(int index) {
+        return compIds[index] >>> 16;
+    }
+
+    /**
+     * Get the build number of the tool of the entry.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int buildNumber(int index) {
+        return compIds[index] & 0xffff;
+    }
+
+    /**
+     * Get the number of objects built by the tool of the entry.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int count(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Get the Rich header hash, the lower-case hex MD5 of the decoded header from {@code DanS} to {@code Rich}
+     * (exclusive). It's computed on first call.
+     */
+    public @NotNull String getHash() {
+        var h = hash;
+        if (h == null) {
+            try {
+                h = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(clearData));
+            } catch (NoSuchAlgorithmException e) {
+                // MD5 is required on every Java platform
+                throw new AssertionError(e);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        var b = new StringBuilder("RichHeader{offset=").append(offset).append(", entries=[");
+        for (int i = 0; i < compIds.length; i++) {
+            if (i > 0) b.append(", ");
+            b.append(productId(i)).append('.').append(buildNumber(i)).append('x').append(counts[i]);
+        }
+        return b.append("]}").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RichHeader r && offset == r.offset && Arrays.equals(clearData, r.clearData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(clearData);
+    }
+}
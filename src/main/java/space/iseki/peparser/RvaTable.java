@@ -0,0 +1,92 @@
+package space.iseki.peparser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A table of RVAs in the image, e.g. the guard CF function table, read from the section data in place.
+ * <p>
+ * Each entry is a 32-bit RVA optionally followed by metadata bytes, the first of which is usually a flag byte (e.g.
+ * {@code IMAGE_GUARD_FLAG_FID_SUPPRESSED} for the guard CF function table). Entries are decoded on access, nothing is
+ * allocated per entry.
+ * </p>
+ */
+public final class RvaTable {
+    static final RvaTable EMPTY = new RvaTable(ByteBuffer.allocate(0), 0, 4);
+    private final ByteBuffer data;
+    private final int size;
+    private final int stride;
+
+    RvaTable(ByteBuffer data, int size, int stride) {
+        assert stride >= 4;
+        this.data = data;
+        this.size = size;
+        this.stride = stride;
+    }
+
+    /**
+     * Get the number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the RVA of the entry.
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int rva(int index) {
+        return data.getInt(checkIndex(index) * stride);
+    }
+
+    /**
+     * Get the first metadata byte of the entry.
+     *
+     * @return the flags, or zero if the entries haven't metadata
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int flags(int index) {
+        checkIndex(index);
+        return stride > 4 ? data.get(index * stride + 4) & 0xff : 0;
+    }
+
+    /**
+     * Find the entry by binary search, the table must be sorted by RVA, which is required by the loader.
+     *
+     * @return the index of the entry, or a negative value if not found
+     */
+    public int indexOf(int rva) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = Integer.compareUnsigned(data.getInt(mid * stride), rva);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy the RVAs into a new array.
+     */
+    public int[] toRvaArray() {
+        var array = new int[size];
+        for (int i = 0; i < size; i++) array[i] = data.getInt(i * stride);
+        return array;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "RvaTable{size=" + size + ", stride=" + stride + '}';
+    }
+}
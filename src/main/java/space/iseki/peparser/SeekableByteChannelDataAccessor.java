@@ -0,0 +1,56 @@
+package space.iseki.peparser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Reads the image from a channel, {@link FileChannel}s are read with positional reads, so they can be read
+ * concurrently; other channels are read under a lock.
+ */
+final class SeekableByteChannelDataAccessor implements DataAccessor {
+    private final SeekableByteChannel channel;
+
+    SeekableByteChannelDataAccessor(SeekableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void readFully(long pos, byte[] buf, int off, int len) throws IOException {
+        var dst = ByteBuffer.wrap(buf, off, len);
+        if (channel instanceof FileChannel fileChannel) {
+            while (dst.hasRemaining()) {
+                if (fileChannel.read(dst, pos + dst.position() - off) < 0) throw new EOFException();
+            }
+            return;
+        }
+        synchronized (channel) {
+            channel.position(pos);
+            while (dst.hasRemaining()) {
+                if (channel.read(dst) < 0) throw new EOFException();
+            }
+        }
+    }
+
+    @Override
+    public void transferTo(long pos, long len, WritableByteChannel target) throws IOException {
+        if (channel instanceof FileChannel fileChannel) {
+            FileChannels.transferTo(fileChannel, pos, len, target);
+        } else {
+            DataAccessor.super.transferTo(pos, len, target);
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
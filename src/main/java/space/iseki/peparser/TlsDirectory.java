@@ -0,0 +1,23 @@
+package space.iseki.peparser;
+
+/**
+ * The TLS directory, the {@code IMAGE_TLS_DIRECTORY32} or {@code IMAGE_TLS_DIRECTORY64} structure.
+ * <p>
+ * The addresses are VAs as in the file, subtract {@link OptionalHeader#imageBase()} to get RVAs.
+ * </p>
+ *
+ * @param startAddressOfRawData the VA of the start of the TLS template
+ * @param endAddressOfRawData   the VA of the end of the TLS template, exclusive
+ * @param addressOfIndex        the VA of the TLS index, it's filled by the loader
+ * @param addressOfCallBacks    the VA of the zero-terminated array of TLS callbacks, see {@link PEFile#getTlsCallbacks()}
+ * @param sizeOfZeroFill        the size of the zero-filled area after the template
+ * @param characteristics       the alignment of the TLS data in bits 20-23
+ * @see PEFile#getTlsDirectory()
+ */
+public record TlsDirectory(long startAddressOfRawData,
+                           long endAddressOfRawData,
+                           long addressOfIndex,
+                           long addressOfCallBacks,
+                           int sizeOfZeroFill,
+                           int characteristics) {
+}
@@ -0,0 +1,229 @@
+package space.iseki.peparser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The version resource({@code VS_VERSIONINFO}) of a PE file.
+ * <p>
+ * The {@code VS_FIXEDFILEINFO} is decoded when the resource is opened. The {@code StringFileInfo} blocks are kept as
+ * bytes, keys are compared in place and only the requested values are decoded.
+ * </p>
+ *
+ * @see PEFile#getVersionInfo()
+ */
+public final class VersionInfo {
+    public static final String COMPANY_NAME = "CompanyName";
+    public static final String FILE_DESCRIPTION = "FileDescription";
+    public static final String FILE_VERSION = "FileVersion";
+    public static final String INTERNAL_NAME = "InternalName";
+    public static final String LEGAL_COPYRIGHT = "LegalCopyright";
+    public static final String ORIGINAL_FILENAME = "OriginalFilename";
+    public static final String PRODUCT_NAME = "ProductName";
+    public static final String PRODUCT_VERSION = "ProductVersion";
+    private static final String VS_VERSION_INFO = "VS_VERSION_INFO";
+    private static final String STRING_FILE_INFO = "StringFileInfo";
+    private static final int HEADER_LENGTH = 6;
+    private final ByteBuffer data;
+    private final int end;
+    private final @Nullable FixedFileInfo fixedFileInfo;
+    private final int childrenOffset;
+    private volatile List<String> languages;
+
+    private VersionInfo(ByteBuffer data, int end, @Nullable FixedFileInfo fixedFileInfo, int childrenOffset) {
+        this.data = data;
+        this.end = end;
+        this.fixedFileInfo = fixedFileInfo;
+        this.childrenOffset = childrenOffset;
+    }
+
+    /**
+     * Parse the version resource.
+     *
+     * @param data the resource data, will be used from index 0 to its limit
+     * @throws PEFileException the resource is invalid
+     */
+    static @NotNull VersionInfo parse(@NotNull ByteBuffer data) {
+        data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.limit() < HEADER_LENGTH) throw new PEFileException("version resource too short");
+            var end = blockEnd(data, 0, data.limit());
+            if (!keyEquals(data, 0, end, VS_VERSION_INFO, false)) throw new PEFileException("not a VS_VERSIONINFO");
+            var valueOffset = valueOffset(data, 0, end);
+            FixedFileInfo fixedFileInfo = null;
+            if (u16(data, 2) >= FixedFileInfo.LENGTH && data.getInt(valueOffset) == FixedFileInfo.SIGNATURE) {
+                fixedFileInfo = new FixedFileInfo(
+                        data.getInt(valueOffset + 4),
+                        data.getInt(valueOffset + 8),
+                        data.getInt(valueOffset + 12),
+                        data.getInt(valueOffset + 16),
+                        data.getInt(valueOffset + 20),
+                        data.getInt(valueOffset + 24),
+                        data.getInt(valueOffset + 28),
+                        data.getInt(valueOffset + 32),
+                        data.getInt(valueOffset + 36),
+                        data.getInt(valueOffset + 40),
+                        data.getInt(valueOffset + 44),
+                        data.getInt(valueOffset + 48));
+            }
+            return new VersionInfo(data, end, fixedFileInfo, childrenOffset(data, 0, end));
+        } catch (IndexOutOfBoundsException e) {
+            throw new PEFileException("invalid version resource", e);
+        }
+    }
+
+    /**
+     * Get the {@code VS_FIXEDFILEINFO}.
+     *
+     * @return the structure, or null if the resource hasn't one
+     */
+    public @Nullable FixedFileInfo getFixedFileInfo() {
+        return fixedFileInfo;
+    }
+
+    /**
+     * Get the keys of the string tables, e.g. {@code 040904b0}, a language ID and a code page in hex.
+     *
+     * @return the keys, unmodifiable
+     * @throws PEFileException the resource is invalid
+     */
+    public @NotNull List<@NotNull String> getLanguages() {
+        var list = languages;
+        if (list == null) {
+            list = readLanguages();
+            languages = list;
+        }
+        return list;
+    }
+
+    private List<String> readLanguages() {
+        try {
+            var keys = new ArrayList<String>();
+            for (int info = childrenOffset; info < end; info = nextBlock(info)) {
+                var infoEnd = blockEnd(data, info, end);
+                if (!keyEquals(data, info, infoEnd, STRING_FILE_INFO, false)) continue;
+                for (int table = childrenOffset(data, info, infoEnd); table < infoEnd; table = nextBlock(table)) {
+                    var tableEnd = blockEnd(data, table, infoEnd);
+                    keys.add(readString(data, table + HEADER_LENGTH, tableEnd));
+                }
+            }
+            return Collections.unmodifiableList(keys);
+        } catch (IndexOutOfBoundsException e) {
+            throw new PEFileException("invalid version resource", e);
+        }
+    }
+
+    /**
+     * Get a value from the first string table containing the key.
+     *
+     * @param key the key, e.g. {@link #PRODUCT_NAME}
+     * @return the value, or null if not found
+     * @throws PEFileException the resource is invalid
+     */
+    public @Nullable String getString(@NotNull String key) {
+        return findString(null, key);
+    }
+
+    /**
+     * Get a value from the string table of the language.
+     *
+     * @param language the key of the string table, e.g. {@code 040904b0}, case-insensitive
+     * @param key      the key, e.g. {@link #PRODUCT_NAME}
+     * @return the value, or null if not found
+     * @throws PEFileException the resource is invalid
+     * @see #getLanguages()
+     */
+    public @Nullable String getString(@NotNull String language, @NotNull String key) {
+        return findString(language, key);
+    }
+
+    private String findString(String language, String key) {
+        try {
+            for (int info = childrenOffset; info < end; info = nextBlock(info)) {
+                var infoEnd = blockEnd(data, info, end);
+                if (!keyEquals(data, info, infoEnd, STRING_FILE_INFO, false)) continue;
+                for (int table = childrenOffset(data, info, infoEnd); table < infoEnd; table = nextBlock(table)) {
+                    var tableEnd = blockEnd(data, table, infoEnd);
+                    if (language != null && !keyEquals(data, table, tableEnd, language, true)) continue;
+                    for (int string = childrenOffset(data, table, tableEnd); string < tableEnd; string = nextBlock(string)) {
+                        var stringEnd = blockEnd(data, string, tableEnd);
+                        if (!keyEquals(data, string, stringEnd, key, false)) continue;
+                        // the value length is in bytes for some compilers, so read until NUL
+                        return u16(data, string + 2) == 0 ? "" : readString(data, valueOffset(data, string, stringEnd), stringEnd);
+                    }
+                }
+            }
+            return null;
+        } catch (IndexOutOfBoundsException e) {
+            throw new PEFileException("invalid version resource", e);
+        }
+    }
+
+    private int nextBlock(int off) {
+        return align4(off + u16(data, off));
+    }
+
+    /**
+     * Get the end of the block, clamped to the parent.
+     */
+    private static int blockEnd(ByteBuffer data, int off, int parentEnd) {
+        if (off + HEADER_LENGTH > parentEnd) throw new PEFileException("version resource block out of bounds");
+        var length = u16(data, off);
+        if (length < HEADER_LENGTH) throw new PEFileException("invalid version resource block length: " + length);
+        return Math.min(off + length, parentEnd);
+    }
+
+    private static int valueOffset(ByteBuffer data, int off, int end) {
+        var p = off + HEADER_LENGTH;
+        while (p + 1 < end && data.getShort(p) != 0) p += 2;
+        return align4(p + 2);
+    }
+
+    private static int childrenOffset(ByteBuffer data, int off, int end) {
+        var valueLength = u16(data, off + 2);
+        // wType 1 is text, the length is in characters
+        var valueBytes = u16(data, off + 4) == 1 ? valueLength * 2 : valueLength;
+        return align4(valueOffset(data, off, end) + valueBytes);
+    }
+
+    private static boolean keyEquals(ByteBuffer data, int off, int end, String key, boolean ignoreCase) {
+        var p = off + HEADER_LENGTH;
+        if (p + key.length() * 2 + 2 > end) return false;
+        for (int i = 0; i < key.length(); i++, p += 2) {
+            var c = data.getChar(p);
+            var expected = key.charAt(i);
+            if (c != expected && !(ignoreCase && Character.toLowerCase(c) == Character.toLowerCase(expected))) return false;
+        }
+        return data.getShort(p) == 0;
+    }
+
+    private static String readString(ByteBuffer data, int off, int end) {
+        var p = off;
+        while (p + 1 < end && data.getShort(p) != 0) p += 2;
+        var chars = new char[(p - off) / 2];
+        for (int i = 0; i < chars.length; i++) chars[i] = data.getChar(off + i * 2);
+        return new String(chars);
+    }
+
+    private static int u16(ByteBuffer data, int off) {
+        return data.getShort(off) & PEFile.SHORT_MASK;
+    }
+
+    private static int align4(int off) {
+        return (off + 3) & ~3;
+    }
+
+    @Override
+    public String toString() {
+        return "VersionInfo{" +
+               "fixedFileInfo=" + fixedFileInfo +
+               ", languages=" + getLanguages() +
+               '}';
+    }
+}
@@ -0,0 +1,25 @@
+package space.iseki.peparser;
+
+/**
+ * An entry of the attribute certificate table, the {@code WIN_CERTIFICATE} structure.
+ *
+ * @param offset          the file offset of {@code bCertificate}
+ * @param length          the length of {@code bCertificate} in bytes, the 8-byte header is not included
+ * @param revision        e.g. {@link #REVISION_2_0}
+ * @param certificateType e.g. {@link #TYPE_PKCS_SIGNED_DATA}
+ * @see PEFile#getCertificates()
+ */
+public record WinCertificate(long offset, long length, short revision, short certificateType) {
+    public static final short REVISION_1_0 = 0x0100;
+    public static final short REVISION_2_0 = 0x0200;
+    public static final short TYPE_X509 = 0x0001;
+    /**
+     * The certificate is a PKCS#7 {@code SignedData} structure, i.e. an Authenticode signature.
+     */
+    public static final short TYPE_PKCS_SIGNED_DATA = 0x0002;
+    static final int HEADER_LENGTH = 8;
+
+    public boolean isPkcsSignedData() {
+        return certificateType == TYPE_PKCS_SIGNED_DATA;
+    }
+}
@@ -1,17 +1,32 @@
 package space.iseki.peparser
 
 import org.junit.jupiter.api.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.io.ByteArrayOutputStream
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.io.path.createTempDirectory
 import kotlin.io.path.createTempFile;
-import kotlin.io.path.outputStream
+import kotlin.io.path.writeBytes
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
 import kotlin.test.assertNotEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
 
 class PEFileTest {
 
+    val testcaseBytes = this::class.java.getResourceAsStream("ScreenOff 2.1.exe").use { input -> input.readBytes() }
     val testcasePath = createTempFile()
     init {
-        this::class.java.getResourceAsStream("ScreenOff 2.1.exe").use { input->
-            testcasePath.outputStream().use { out->input.copyTo(out) }
-        }
+        testcasePath.writeBytes(testcaseBytes)
     }
     @Test
     fun test(){
@@ -23,4 +38,711 @@ class PEFileTest {
             assertNotEquals(0, f.sections.size)
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testMemoryMapped() {
+        val expected = PEFile.open(testcasePath.toFile()).use { f -> f.resourceTree.toString() }
+        PEFile.open(testcasePath.toFile(), PEOpenOption.MEMORY_MAPPED).use { f ->
+            assertEquals(expected, f.resourceTree.toString())
+            assertNotEquals(0, f.getResourceData(f.resourceTree[0].children[0].children[0]).size)
+        }
+        // a zero-length slice at the end of the mapping, where no chunk exists
+        ByteBufferDataAccessor.map(createTempFile().toFile()).use { accessor -> assertEquals(0, accessor.slice(0, 0).remaining()) }
+    }
+
+    @Test
+    fun testInMemory() {
+        val expected = PEFile.open(testcasePath.toFile()).use { f -> f.resourceTree.toString() }
+        PEFile.open(testcaseBytes).use { f -> assertEquals(expected, f.resourceTree.toString()) }
+        PEFile.open(ByteBuffer.allocateDirect(testcaseBytes.size).put(testcaseBytes).flip()).use { f ->
+            assertEquals(expected, f.resourceTree.toString())
+        }
+        PEFile.open(FileChannel.open(testcasePath)).use { f -> assertEquals(expected, f.resourceTree.toString()) }
+    }
+
+    @Test
+    fun testLazyResourceTree() {
+        // make the number of ID entries of the root resource directory point beyond the end of file
+        val corrupted = testcaseBytes.copyOf()
+        corrupted[0x9a0e] = 0xff.toByte()
+        corrupted[0x9a0f] = 0xff.toByte()
+        PEFile.open(corrupted).use { f ->
+            assertNotEquals(0, f.sections.size)
+            assertFailsWith<PEFileException> { f.resourceTree.size }
+        }
+    }
+
+    @Test
+    fun testProbe() {
+        val probe = PEFile.probe(testcasePath.toFile())!!
+        assertEquals(MachineType.IMAGE_FILE_MACHINE_I386, probe.machineType)
+        assertEquals(WindowsSubsystem.IMAGE_SUBSYSTEM_WINDOWS_GUI, probe.windowsSubsystem)
+        assertEquals(false, probe.pe32Plus)
+        assertEquals(false, probe.isDll)
+        assertEquals(probe, PEFile.probe(testcaseBytes))
+        assertNull(PEFile.probe(ByteArray(4096)))
+        val pastEnd = ByteArray(4096).also { it[0] = 'M'.code.toByte(); it[1] = 'Z'.code.toByte() }
+        ByteBuffer.wrap(pastEnd).order(ByteOrder.LITTLE_ENDIAN).putInt(0x3c, 8192)
+        assertNull(PEFile.probe(pastEnd))
+        val large = testcaseBytes.copyOf(32 shl 20)
+        ByteBuffer.wrap(large).order(ByteOrder.LITTLE_ENDIAN).putInt(0x3c, 20 shl 20)
+        assertNull(PEFile.probe(large))
+        val largeFile = createTempFile()
+        largeFile.writeBytes(large)
+        assertNull(PEFile.probe(largeFile.toFile()))
+        assertFailsWith<PEFileException> { PEFile.open(large) }
+    }
+
+    @Test
+    fun testImports() {
+        PEFile.open(testcaseBytes).use { f ->
+            val descriptor = f.imports.single()
+            assertEquals("mscoree.dll", descriptor.name())
+            assertEquals(ImportEntry("_CorExeMain", 0, 0, 0x2000), descriptor.entries().single())
+            PEFile.open(testcasePath.toFile()).use { other -> assertSame(descriptor.name(), other.imports.single().name()) }
+        }
+    }
+
+    /**
+     * Put an export directory into the slack space at the end of the `.text` section of the fixture.
+     */
+    private fun fixtureWithExports(): ByteArray {
+        val bytes = testcaseBytes.copyOf()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        val rva = 0x2000 + 38416
+        val delta = 512 - 0x2000
+        val eat = rva + 40
+        val namePointers = eat + 12
+        val nameOrdinals = namePointers + 8
+        var stringRva = nameOrdinals + 4
+        val strings = listOf("test.dll", "Alpha", "Beta", "other.Gamma").map { s ->
+            s.toByteArray().copyInto(bytes, stringRva + delta)
+            stringRva.also { stringRva += s.length + 1 }
+        }
+        buffer.putInt(rva + delta + 12, strings[0]).putInt(rva + delta + 16, 5).putInt(rva + delta + 20, 3)
+            .putInt(rva + delta + 24, 2).putInt(rva + delta + 28, eat).putInt(rva + delta + 32, namePointers)
+            .putInt(rva + delta + 36, nameOrdinals)
+        buffer.putInt(eat + delta, 0x1000).putInt(eat + delta + 4, 0).putInt(eat + delta + 8, strings[3])
+        buffer.putInt(namePointers + delta, strings[1]).putInt(namePointers + delta + 4, strings[2])
+        buffer.putShort(nameOrdinals + delta, 2).putShort(nameOrdinals + delta + 2, 0)
+        buffer.putInt(0xf8, rva).putInt(0xfc, stringRva - rva)
+        return bytes
+    }
+
+    @Test
+    fun testExports() {
+        PEFile.open(fixtureWithExports()).use { f ->
+            val exports = f.exportDirectory!!
+            assertEquals("test.dll", exports.name())
+            assertEquals(ExportEntry("Beta", 5, 0x1000, null), exports.findByName("Beta"))
+            assertEquals("other.Gamma", exports.findByName("Alpha")!!.forwarder)
+            assertNull(exports.findByName("Alph"))
+            assertEquals(ExportEntry("Beta", 5, 0x1000, null), exports.findByOrdinal(5))
+            assertEquals(exports.findByName("Alpha"), exports.findByOrdinal(7))
+            assertNull(exports.findByOrdinal(6))
+            assertNull(exports.findByOrdinal(8))
+            assertEquals(listOf("Beta", null, "Alpha"), exports.entries().map { it.name })
+        }
+        PEFile.open(testcaseBytes).use { f -> assertNull(f.exportDirectory) }
+        // a section larger than the region cache limit is read range by range instead of being copied
+        val large = fixtureWithExports().copyOf(0x200 + (17 shl 20))
+        val buffer = ByteBuffer.wrap(large).order(ByteOrder.LITTLE_ENDIAN)
+        val sectionTable = buffer.getInt(0x3c) + 24 + buffer.getShort(buffer.getInt(0x3c) + 20)
+        buffer.putInt(sectionTable + 16, 17 shl 20)
+        val path = createTempFile().also { it.writeBytes(large) }
+        PEFile.open(path.toFile()).use { f ->
+            val exports = f.exportDirectory!!
+            assertEquals("test.dll", exports.name())
+            assertEquals(ExportEntry("Beta", 5, 0x1000, null), exports.findByName("Beta"))
+            assertEquals(exports.findByName("Alpha"), exports.findByOrdinal(7))
+            assertEquals(listOf("Beta", null, "Alpha"), exports.entries().map { it.name })
+            assertEquals(ImportEntry("_CorExeMain", 0, 0, 0x2000), f.imports.single().entries().single())
+        }
+    }
+
+    @Test
+    fun testAddressTranslator() {
+        PEFile.open(testcaseBytes).use { f ->
+            val translator = f.addressTranslator
+            assertEquals(0x10, translator.toFileOffset(0x10))
+            assertEquals(-1, translator.toFileOffset(0x1000))
+            assertEquals(0, translator.sectionIndexOf(0x2000))
+            assertEquals(0x200 + 0x10, translator.toFileOffset(0x2010))
+            assertEquals(2, translator.sectionIndexOf(0x12000 + 100))
+            assertEquals(58368L + 100, translator.toFileOffset(0x12000 + 100))
+            assertEquals(-1, translator.sectionIndexOf(0x14000))
+        }
+        val optionalHeader = PEFile.open(testcaseBytes).use { f -> f.optionalHeader }
+        fun section(virtualAddress: Int, virtualSize: Int, pointerToRawData: Int, sizeOfRawData: Int) =
+            SectionHeader("", virtualSize, virtualAddress, sizeOfRawData, pointerToRawData, 0, 0, 0, 0, 0)
+        val translator = AddressTranslator(
+            optionalHeader, listOf(
+                section(0x4000, 0x3000, 0x1000, 0x200), // overlaps the third section, zero-filled after 0x4200
+                section(0x2000, 0x1000, 0x400, 0x200),
+                section(0x6000, 0x1000, 0x1201, 0x200), // pointerToRawData is rounded down to 0x1200
+                section(0x8100, 0x100, 0x1400, 0x100), // virtualAddress is rounded down to the section alignment
+            )
+        )
+        assertEquals(1, translator.sectionIndexOf(0x2000))
+        assertEquals(0x400 + 0x10, translator.toFileOffset(0x2010))
+        assertEquals(-1, translator.toFileOffset(0x2300))
+        assertEquals(0, translator.sectionIndexOf(0x4300))
+        assertEquals(-1, translator.toFileOffset(0x4300))
+        assertEquals(2, translator.sectionIndexOf(0x6010))
+        assertEquals(0x1210, translator.toFileOffset(0x6010))
+        assertEquals(0, translator.sectionIndexOf(0x5800))
+        assertEquals(-1, translator.sectionIndexOf(0x7000))
+        assertEquals(3, translator.sectionIndexOf(0x8000))
+        assertEquals(0x1410, translator.toFileOffset(0x8010))
+    }
+
+    @Test
+    fun testResourceDataAccess() {
+        val opens = listOf(
+            { PEFile.open(testcasePath.toFile()) },
+            { PEFile.open(testcasePath.toFile(), PEOpenOption.MEMORY_MAPPED) },
+            { PEFile.open(testcaseBytes) },
+            { PEFile.open(FileChannel.open(testcasePath)) },
+        )
+        for (open in opens) {
+            open().use { f ->
+                val node = f.resourceTree[0].children[0].children[0]
+                val expected = f.getResourceData(node)
+                val buffer = f.getResourceDataBuffer(node)
+                assertContentEquals(expected, ByteArray(buffer.remaining()).also { buffer.get(it) })
+                assertContentEquals(expected, f.openResourceDataStream(node).use { it.readBytes() })
+                val out = ByteArrayOutputStream()
+                assertEquals(expected.size.toLong(), f.transferResourceData(node, Channels.newChannel(out)))
+                assertContentEquals(expected, out.toByteArray())
+                // a size with the high bit set can't be held in an array or a buffer
+                val huge = ResourceTreeNode(node.children, node.name, node.id, ResourceData(node.resourceData!!.rva, -1, 0))
+                assertFailsWith<PEFileException> { f.getResourceData(huge) }
+                assertFailsWith<PEFileException> { f.getResourceDataBuffer(huge) }
+            }
+        }
+    }
+
+    @Test
+    fun testConcurrentReads() {
+        val executor = Executors.newFixedThreadPool(8)
+        try {
+            for (options in listOf(arrayOf(), arrayOf(PEOpenOption.MEMORY_MAPPED))) {
+                PEFile.open(testcasePath.toFile(), *options).use { f ->
+                    val node = f.resourceTree[0].children[0].children[0]
+                    val expected = PEFile.open(testcaseBytes).use { it.getResourceData(node) }
+                    val tasks = List(64) { Callable { f.getResourceData(node) } }
+                    for (result in executor.invokeAll(tasks)) assertContentEquals(expected, result.get())
+                }
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun testScanner() {
+        val dir = createTempDirectory()
+        dir.resolve("good.exe").writeBytes(testcaseBytes)
+        dir.resolve("readme.txt").writeBytes("not a PE file".toByteArray())
+        // an unknown optional header magic
+        dir.resolve("broken.exe").writeBytes(testcaseBytes.copyOf().also { it[0x98] = 0 })
+        ZipOutputStream(dir.resolve("bundle.zip").toFile().outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("lib/inner.dll"))
+            zip.write(testcaseBytes)
+            zip.putNextEntry(ZipEntry("META-INF/MANIFEST.MF"))
+            zip.write("Manifest-Version: 1.0\n".toByteArray())
+        }
+        val handler = PEScanner.Handler { _, file -> file.sections.size }
+        val results = PEScanner.scan(dir, PEScanOptions.defaults().withParallelism(2).withMaxInFlight(1), handler).use { stream ->
+            stream.toList().associateBy { it.target.toString().removePrefix(dir.toString()) }
+        }
+        assertEquals(setOf("/good.exe", "/broken.exe"), results.keys)
+        assertEquals(3, results["/good.exe"]!!.value)
+        assertTrue(results["/broken.exe"]!!.error is PEFileException)
+
+        val archived = ArrayList<PEScanResult<Int>>()
+        PEScanner.scan(dir, PEScanOptions.defaults().withScanArchives(true), handler) { archived.add(it) }
+        assertEquals(3, archived.size)
+        val inner = archived.single { it.target.entryName != null }
+        assertEquals("lib/inner.dll", inner.target.entryName)
+        assertTrue(inner.isSuccess)
+        assertEquals(3, inner.value)
+
+        // unconsumed results count towards maxInFlight: when the n-th result is consumed, n permits have been
+        // released, so at most n + maxInFlight files have been started
+        val many = createTempDirectory()
+        repeat(6) { many.resolve("$it.exe").writeBytes(testcaseBytes) }
+        val maxInFlight = 2
+        val started = java.util.concurrent.atomic.AtomicInteger()
+        val filled = java.util.concurrent.CountDownLatch(1 + maxInFlight)
+        val counting = PEScanner.Handler { _, _ -> started.incrementAndGet().also { filled.countDown() } }
+        PEScanner.scan(many, PEScanOptions.defaults().withParallelism(4).withMaxInFlight(maxInFlight), counting).use { stream ->
+            var n = 0
+            stream.forEach {
+                n++
+                // block the consumer until the scanner has used the permit released by the first result
+                if (n == 1) assertTrue(filled.await(10, java.util.concurrent.TimeUnit.SECONDS))
+                assertTrue(started.get() <= n + maxInFlight)
+            }
+            assertEquals(6, n)
+        }
+
+        // an archive with more entries than maxInFlight next to plain files, nothing is dropped
+        val mixed = createTempDirectory()
+        repeat(3) { mixed.resolve("$it.exe").writeBytes(testcaseBytes) }
+        ZipOutputStream(mixed.resolve("bundle.zip").toFile().outputStream()).use { zip ->
+            repeat(5) {
+                zip.putNextEntry(ZipEntry("lib/$it.dll"))
+                zip.write(testcaseBytes)
+            }
+        }
+        repeat(20) {
+            val scanned = PEScanner.scan(mixed, PEScanOptions.defaults().withParallelism(4).withMaxInFlight(2).withScanArchives(true), handler).use { it.toList() }
+            assertEquals(8, scanned.size)
+            assertEquals(5, scanned.count { r -> r.target.entryName != null })
+            assertTrue(scanned.all { r -> r.isSuccess })
+        }
+    }
+
+    @Test
+    fun testFindResource() {
+        val expected = PEFile.open(testcaseBytes).use { f -> f.resourceTree.single { it.id == 16 }.children[0].children[0] }
+        PEFile.open(testcasePath.toFile()).use { f ->
+            val path = arrayOf(ResourcePathSegment(16), ResourcePathSegment(1), ResourcePathSegment(0))
+            assertEquals(expected, f.findResource(*path))
+            assertNull(f.findResource(ResourcePathSegment(99)))
+            assertNull(f.findResource(ResourcePathSegment(16), ResourcePathSegment("MISSING")))
+            assertNull(f.findResource(*path, ResourcePathSegment(0)))
+            // the same result once the lists are read
+            assertEquals(expected.resourceData, f.resourceTree.single { it.id == 16 }.child(ResourcePathSegment(1))!!.children[0].resourceData)
+            assertEquals(expected, f.findResource(*path))
+        }
+        assertFailsWith<IllegalArgumentException> { PEFile.open(testcaseBytes).use { it.findResource() } }
+    }
+
+    private fun versionBlock(key: String, value: ByteArray, text: Boolean, vararg children: ByteArray): ByteArray {
+        val out = ByteArrayOutputStream()
+        fun pad() = repeat((4 - out.size() % 4) % 4) { out.write(0) }
+        repeat(6) { out.write(0) }
+        out.write((key + "\u0000").toByteArray(Charsets.UTF_16LE))
+        pad()
+        out.write(value)
+        pad()
+        children.forEach { out.write(it); pad() }
+        val bytes = out.toByteArray()
+        val valueLength = if (text) value.size / 2 else value.size
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putShort(bytes.size.toShort()).putShort(valueLength.toShort()).putShort(if (text) 1 else 0)
+        return bytes
+    }
+
+    @Test
+    fun testVersionInfo() {
+        fun string(key: String, value: String) = versionBlock(key, (value + "\u0000").toByteArray(Charsets.UTF_16LE), true)
+        val fixed = ByteBuffer.allocate(52).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(0xFEEF04BD.toInt()).putInt(0x10000).putInt(0x00020001).putInt(0x00040003).putInt(0x00010000).putInt(0)
+            .array()
+        val resource = versionBlock(
+            "VS_VERSION_INFO", fixed, false,
+            versionBlock(
+                "StringFileInfo", ByteArray(0), true,
+                versionBlock("040904b0", ByteArray(0), true, string("CompanyName", "Example Corp"), string("ProductName", "Example")),
+                versionBlock("041104b0", ByteArray(0), true, string("ProductName", "Example JP"), string("Comments", "")),
+            ),
+            versionBlock("VarFileInfo", ByteArray(0), true, versionBlock("Translation", byteArrayOf(9, 4, -80, 4), false)),
+        )
+        val info = VersionInfo.parse(ByteBuffer.wrap(resource))
+        assertEquals("2.1.4.3", info.fixedFileInfo!!.fileVersion)
+        assertEquals("1.0.0.0", info.fixedFileInfo!!.productVersion)
+        assertEquals(listOf("040904b0", "041104b0"), info.languages)
+        assertEquals("Example Corp", info.getString(VersionInfo.COMPANY_NAME))
+        assertEquals("Example", info.getString(VersionInfo.PRODUCT_NAME))
+        assertEquals("Example JP", info.getString("041104B0", VersionInfo.PRODUCT_NAME))
+        assertEquals("", info.getString("Comments"))
+        assertNull(info.getString("041104b0", VersionInfo.COMPANY_NAME))
+        assertNull(info.getString(VersionInfo.FILE_VERSION))
+        assertFailsWith<PEFileException> { VersionInfo.parse(ByteBuffer.wrap(resource, 0, 40).slice()) }
+    }
+
+    @Test
+    fun testAuthenticodeHash() {
+        val optionalHeader = 0x98
+        val digest = java.security.MessageDigest.getInstance("SHA-256")
+        digest.update(testcaseBytes, 0, optionalHeader + 64)
+        digest.update(testcaseBytes, optionalHeader + 68, 60)
+        digest.update(testcaseBytes, optionalHeader + 136, testcaseBytes.size - optionalHeader - 136)
+        val expected = digest.digest()
+        val opens = listOf(
+            { PEFile.open(testcasePath.toFile()) },
+            { PEFile.open(testcasePath.toFile(), PEOpenOption.MEMORY_MAPPED) },
+            { PEFile.open(testcaseBytes) },
+        )
+        for (open in opens) {
+            open().use { f -> assertContentEquals(expected, f.computeAuthenticodeHash("SHA-256")) }
+        }
+        // appending a certificate table changes neither the hash nor the checksum
+        val signed = testcaseBytes.copyOf(testcaseBytes.size + 16)
+        ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(optionalHeader + 64, 0x12345678)
+            .putInt(optionalHeader + 128, testcaseBytes.size).putInt(optionalHeader + 132, 16)
+            .putInt(testcaseBytes.size, 16)
+        PEFile.open(signed).use { f ->
+            assertContentEquals(expected, f.computeAuthenticodeHash("SHA-256"))
+            assertEquals(20, f.computeAuthenticodeHash("SHA-1").size)
+        }
+        ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN).putInt(optionalHeader + 128, signed.size + 8)
+        PEFile.open(signed).use { f -> assertFailsWith<PEFileException> { f.computeAuthenticodeHash("SHA-256") } }
+    }
+
+    @Test
+    fun testChecksum() {
+        val checksumOffset = 0x98 + 64
+        // the reference, one 16-bit word at a time
+        var sum = 0L
+        for (i in testcaseBytes.indices step 2) {
+            if (i in checksumOffset until checksumOffset + 4) continue
+            val word = (testcaseBytes[i].toInt() and 0xff) or ((testcaseBytes.getOrElse(i + 1) { 0 }.toInt() and 0xff) shl 8)
+            sum += word
+            sum = (sum and 0xffff) + (sum ushr 16)
+        }
+        val expected = (sum + testcaseBytes.size).toInt()
+        val opens = listOf(
+            { PEFile.open(testcasePath.toFile()) },
+            { PEFile.open(testcasePath.toFile(), PEOpenOption.MEMORY_MAPPED) },
+            { PEFile.open(testcaseBytes) },
+        )
+        for (open in opens) {
+            open().use { f ->
+                assertEquals(expected, f.computeChecksum())
+                assertEquals(expected == 0, f.verifyChecksum())
+            }
+        }
+        val patched = testcaseBytes.copyOf()
+        ByteBuffer.wrap(patched).order(ByteOrder.LITTLE_ENDIAN).putInt(checksumOffset, expected)
+        PEFile.open(patched).use { f -> assertTrue(f.verifyChecksum()) }
+    }
+
+    @Test
+    fun testCertificates() {
+        PEFile.open(testcaseBytes).use { f -> assertEquals(emptyList(), f.certificates) }
+        val tableOffset = (testcaseBytes.size + 7) and 7.inv()
+        val signed = testcaseBytes.copyOf(tableOffset + 32)
+        ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(0x98 + 128, tableOffset).putInt(0x98 + 132, 32)
+            .position(tableOffset)
+            .putInt(13).putShort(WinCertificate.REVISION_2_0).putShort(WinCertificate.TYPE_PKCS_SIGNED_DATA).put("abcde".toByteArray())
+            .position(tableOffset + 16)
+            .putInt(16).putShort(WinCertificate.REVISION_2_0).putShort(WinCertificate.TYPE_X509).put("01234567".toByteArray())
+        val signedPath = createTempFile().also { it.writeBytes(signed) }
+        for (open in listOf({ PEFile.open(signed) }, { PEFile.open(signedPath.toFile(), PEOpenOption.MEMORY_MAPPED) }, { PEFile.open(signedPath.toFile()) })) {
+            open().use { f ->
+                val certificates = f.certificates
+                assertEquals(listOf(tableOffset + 8L, tableOffset + 24L), certificates.map { it.offset })
+                assertTrue(certificates[0].isPkcsSignedData)
+                assertEquals(WinCertificate.TYPE_X509, certificates[1].certificateType)
+                val buffer = f.getCertificateBuffer(certificates[0])
+                assertContentEquals("abcde".toByteArray(), ByteArray(buffer.remaining()).also { buffer.get(it) })
+                assertContentEquals("01234567".toByteArray(), f.openCertificateStream(certificates[1]).use { it.readBytes() })
+            }
+        }
+        ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN).putInt(tableOffset + 16, 17)
+        PEFile.open(signed).use { f -> assertFailsWith<PEFileException> { f.certificates } }
+        // dwLength is unsigned, a length with the high bit set overruns the table
+        ByteBuffer.wrap(signed).order(ByteOrder.LITTLE_ENDIAN).putInt(tableOffset + 16, 0x80000010.toInt())
+        PEFile.open(signed).use { f -> assertFailsWith<PEFileException> { f.certificates } }
+    }
+
+    @Test
+    fun testBaseRelocations() {
+        // the .reloc section of the fixture is at file offset 58368, rewrite it with two blocks
+        val bytes = testcaseBytes.copyOf()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.putInt(0x120 + 4, 32)
+        buffer.position(58368)
+            .putInt(0x2000).putInt(20).putShort(0x3123).putShort(0).putShort(0xA456.toShort()).putShort(0x4010).putShort(0xBEEF.toShort()).putShort(0)
+            .putInt(0x4000).putInt(12).putShort(0x3008).putShort(0)
+        val entries = ArrayList<Pair<Int, Int>>()
+        PEFile.open(bytes).use { f ->
+            assertEquals(4, f.forEachBaseRelocation { rva, type -> entries.add(rva to type) })
+        }
+        val expected = listOf(
+            0x2123 to BaseRelocationConsumer.TYPE_HIGHLOW,
+            0x2456 to BaseRelocationConsumer.TYPE_DIR64,
+            0x2010 to BaseRelocationConsumer.TYPE_HIGHADJ,
+            0x4008 to BaseRelocationConsumer.TYPE_HIGHLOW,
+        )
+        assertEquals(expected, entries)
+        // a padding block with a zero SizeOfBlock ends the table
+        buffer.putInt(0x120 + 4, 40).putLong(58368 + 32, 0)
+        PEFile.open(bytes).use { f -> assertEquals(4, f.forEachBaseRelocation { _, _ -> }) }
+        buffer.putInt(58368 + 32 + 4, 4)
+        PEFile.open(bytes).use { f -> assertFailsWith<PEFileException> { f.forEachBaseRelocation { _, _ -> } } }
+        buffer.putInt(0x120 + 4, 32).putInt(58368 + 4, 36)
+        PEFile.open(bytes).use { f -> assertFailsWith<PEFileException> { f.forEachBaseRelocation { _, _ -> } } }
+    }
+
+    @Test
+    fun testDebugDirectory() {
+        PEFile.open(testcasePath.toFile()).use { f ->
+            val entry = f.debugDirectory.single()
+            assertEquals(DebugDirectoryEntry.TYPE_CODEVIEW, entry.type)
+            assertEquals(284, entry.sizeOfData)
+            assertEquals(38556, entry.pointerToRawData)
+            val codeView = f.codeViewInfo!!
+            assertEquals(java.util.UUID.fromString("acb101e7-857a-4cfa-bba2-c4663e6f16ec"), codeView.guid)
+            assertEquals(1, codeView.age)
+            assertEquals("C:\\Users\\Guest Ji\\My Projects\\AutoSleep\\AutoSleep\\obj\\Release\\ScreenOff 2.1.pdb", codeView.path)
+            assertEquals("ACB101E7857A4CFABBA2C4663E6F16EC1", codeView.symbolKey)
+        }
+        // an NB10 record is ignored
+        PEFile.open(testcaseBytes.copyOf().also { "NB10".toByteArray().copyInto(it, 38556) }).use { f ->
+            assertEquals(1, f.debugDirectory.size)
+            assertNull(f.codeViewInfo)
+        }
+        PEFile.open(testcaseBytes.copyOf().also { ByteBuffer.wrap(it).order(ByteOrder.LITTLE_ENDIAN).putLong(0x128, 0) }).use { f ->
+            assertEquals(emptyList(), f.debugDirectory)
+            assertNull(f.codeViewInfo)
+        }
+        PEFile.open(testcaseBytes.copyOf().also { ByteBuffer.wrap(it).order(ByteOrder.LITTLE_ENDIAN).putInt(0x12c, -1) }).use { f ->
+            assertFailsWith<PEFileException> { f.debugDirectory }
+        }
+    }
+
+    @Test
+    fun testLoadConfig() {
+        PEFile.open(testcaseBytes).use { f -> assertNull(f.loadConfig) }
+        val imageBase = PEFile.open(testcaseBytes).use { it.optionalHeader.imageBase() }.toInt()
+        // a PE32 load config up to GuardFlags, in the slack space of .text
+        val rva = 0x2000 + 38416
+        val bytes = testcaseBytes.copyOf()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        val off = rva - 0x2000 + 0x200
+        buffer.putInt(off, 92).putInt(off + 60, imageBase + 0x3000)
+            .putInt(off + 64, imageBase + rva + 96).putInt(off + 68, 3)
+            .putInt(off + 80, imageBase + rva + 112).putInt(off + 84, 2).putInt(off + 88, 0x10000500)
+            .putInt(off + 96, 0x2100).putInt(off + 100, 0x2200).putInt(off + 104, 0x2300)
+            .putInt(off + 112, 0x2010).put(off + 116, 1).putInt(off + 117, 0x2020)
+        buffer.putInt(0x148, rva).putInt(0x14c, 64)
+        PEFile.open(bytes).use { f ->
+            val loadConfig = f.loadConfig!!
+            assertEquals(92, loadConfig.size())
+            assertEquals(imageBase + 0x3000L, loadConfig.securityCookie())
+            assertEquals(LoadConfig.GUARD_CF_INSTRUMENTED or LoadConfig.GUARD_CF_FUNCTION_TABLE_PRESENT, loadConfig.guardFlags() and 0xffff)
+            assertEquals(listOf(0x2100, 0x2200, 0x2300), loadConfig.seHandlers().toRvaArray().toList())
+            val functions = loadConfig.guardCFFunctions()
+            assertEquals(2, functions.size())
+            assertEquals(0x2020, functions.rva(1))
+            assertEquals(1, functions.flags(0))
+            assertEquals(1, functions.indexOf(0x2020))
+            assertTrue(functions.indexOf(0x2030) < 0)
+            // beyond the size
+            assertEquals(0L, loadConfig.guardLongJumpTargetCount())
+            assertEquals(0, loadConfig.guardLongJumpTargets().size())
+        }
+        buffer.putInt(off + 84, 1000)
+        PEFile.open(bytes).use { f -> assertFailsWith<PEFileException> { f.loadConfig!!.guardCFFunctions() } }
+    }
+
+    @Test
+    fun testExceptionDirectory() {
+        PEFile.open(testcaseBytes).use { f -> assertNull(f.exceptionDirectory) }
+        // RUNTIME_FUNCTION tables in the slack space of .text, the machine type is patched
+        val rva = 0x2000 + 38416
+        val off = rva - 0x2000 + 0x200
+        val amd64 = testcaseBytes.copyOf()
+        ByteBuffer.wrap(amd64).order(ByteOrder.LITTLE_ENDIAN)
+            .putShort(0x84, 0x8664.toShort()).putInt(0x110, rva).putInt(0x114, 36)
+            .position(off)
+            .putInt(0x3000).putInt(0x3040).putInt(0x5000)
+            .putInt(0x2000).putInt(0x2100).putInt(0x5010)
+            .putInt(0x2100).putInt(0x2180).putInt(0x5020)
+        PEFile.open(amd64).use { f ->
+            val table = f.exceptionDirectory!!
+            assertEquals(3, table.size())
+            assertEquals(listOf(0x2000, 0x2100, 0x3000), (0 until 3).map { table.beginAddress(it) })
+            assertEquals(0, table.findFunction(0x2000))
+            assertEquals(1, table.findFunction(0x2100))
+            assertEquals(1, table.findFunction(0x217f))
+            assertEquals(-1, table.findFunction(0x2180))
+            assertEquals(2, table.findFunction(0x3010))
+            assertEquals(0x5000, table.unwindData(2))
+            assertEquals(-1, table.findFunction(0x1000))
+            assertEquals(-1, table.findFunction(0x4000))
+        }
+        val arm64 = testcaseBytes.copyOf()
+        ByteBuffer.wrap(arm64).order(ByteOrder.LITTLE_ENDIAN)
+            .putShort(0x84, 0xaa64.toShort()).putInt(0x110, rva).putInt(0x114, 16)
+            .position(off)
+            // packed, FunctionLength 0x10 * 4
+            .putInt(0x2000).putInt((0x10 shl 2) or 1)
+            // .xdata record, FunctionLength 0x20 * 4
+            .putInt(0x2100).putInt(rva + 64)
+            .position(off + 64).putInt(0x20)
+        PEFile.open(arm64).use { f ->
+            val table = f.exceptionDirectory!!
+            assertEquals(0x2040, table.endAddress(0))
+            assertEquals(0x2180, table.endAddress(1))
+            assertEquals(1, table.findFunction(0x2170))
+            assertEquals(-1, table.findFunction(0x2050))
+        }
+    }
+
+    @Test
+    fun testTlsAndDelayImports() {
+        PEFile.open(testcaseBytes).use { f ->
+            assertNull(f.tlsDirectory)
+            assertEquals(0, f.tlsCallbacks.size)
+            assertEquals(emptyList(), f.delayImports)
+        }
+        val imageBase = PEFile.open(testcaseBytes).use { it.optionalHeader.imageBase() }.toInt()
+        // the directories in the slack space of .text
+        val rva = 0x2000 + 38416
+        val off = rva - 0x2000 + 0x200
+        val bytes = testcaseBytes.copyOf()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.putInt(0x140, rva).putInt(0x144, 24).putInt(0x160, rva + 64).putInt(0x164, 96)
+        buffer.position(off)
+            .putInt(imageBase + 0x3000).putInt(imageBase + 0x3010).putInt(imageBase + 0x3020).putInt(imageBase + rva + 32).putInt(0).putInt(0)
+            .position(off + 32).putInt(imageBase + 0x2100).putInt(imageBase + 0x2200).putInt(0)
+        // an RVA-based descriptor and an old VA-based one
+        buffer.position(off + 64)
+            .putInt(1).putInt(rva + 192).putInt(rva + 188).putInt(rva + 176).putInt(rva + 160).putInt(0).putInt(0).putInt(0)
+            .putInt(0).putInt(imageBase + rva + 192).putInt(0).putInt(imageBase + rva + 176).putInt(imageBase + rva + 224).putInt(0).putInt(0).putInt(0)
+        buffer.position(off + 160).putInt(rva + 204).putInt(0x80000005.toInt()).putInt(0)
+        "user32.dll".toByteArray().copyInto(bytes, off + 192)
+        buffer.position(off + 204).putShort(7).put("MessageBoxW".toByteArray())
+        buffer.position(off + 224).putInt(imageBase + rva + 204).putInt(0)
+        PEFile.open(bytes).use { f ->
+            val tls = f.tlsDirectory!!
+            assertEquals(imageBase + 0x3000L, tls.startAddressOfRawData())
+            assertEquals(listOf(imageBase + 0x2100L, imageBase + 0x2200L), f.tlsCallbacks.toList())
+            val delayImports = f.delayImports
+            assertEquals(2, delayImports.size)
+            assertEquals(listOf("user32.dll", "user32.dll"), delayImports.map { it.name() })
+            assertSame(delayImports[0].name(), delayImports[1].name())
+            val entries = delayImports[0].entries()
+            assertEquals(ImportEntry("MessageBoxW", 7, 0, rva + 176), entries[0])
+            assertEquals(ImportEntry(null, 0, 5, rva + 180), entries[1])
+            assertEquals(rva + 188, delayImports[0].moduleHandleRva())
+            assertEquals(rva + 176, delayImports[1].importAddressTableRva())
+            assertEquals(listOf(ImportEntry("MessageBoxW", 7, 0, rva + 176)), delayImports[1].entries())
+            assertSame(entries[0].name(), delayImports[1].entries()[0].name())
+        }
+    }
+
+    @Test
+    fun testClrMetadata() {
+        for (open in listOf({ PEFile.open(testcasePath.toFile()) }, { PEFile.open(testcaseBytes) })) {
+            open().use { f ->
+                val header = f.clrHeader!!
+                assertEquals(72, header.cb())
+                assertEquals(ImageDataDirectory(10952, 10856), header.metadata())
+                assertEquals(ClrHeader.FLAGS_IL_ONLY, header.flags())
+                val metadata = f.clrMetadata!!
+                assertEquals("v4.0.30319", metadata.version())
+                assertEquals(listOf("#~", "#Strings", "#US", "#GUID", "#Blob"), metadata.streams().map { it.name() })
+                val strings = metadata.findStream(ClrMetadata.STRINGS_STREAM)!!
+                assertEquals(MetadataStream("#Strings", 4492, 3988), strings)
+                val buffer = metadata.getStreamBuffer(strings)
+                assertEquals(3988, buffer.remaining())
+                val offset = 10952 - 0x2000 + 0x200 + 4492
+                assertContentEquals(testcaseBytes.copyOfRange(offset, offset + 3988), ByteArray(buffer.remaining()).also { buffer.get(it) })
+                assertEquals(16, metadata.getStreamBuffer(metadata.findStream(ClrMetadata.GUID_STREAM)!!).remaining())
+                assertNull(metadata.findStream("#Missing"))
+            }
+        }
+        PEFile.open(testcaseBytes.copyOf().also { ByteBuffer.wrap(it).order(ByteOrder.LITTLE_ENDIAN).putLong(0x168, 0) }).use { f ->
+            assertNull(f.clrHeader)
+            assertNull(f.clrMetadata)
+        }
+        // stream names are padded by their encoded length, "#\u00e9\u00e9" takes 5 bytes
+        val root = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN)
+        root.putInt(0x424A5342).putShort(1).putShort(1).putInt(0).putInt(4).put("v4".toByteArray()).putShort(0)
+        root.putShort(0).putShort(2)
+        root.putInt(48).putInt(8).put("#\u00e9\u00e9".toByteArray()).put(ByteArray(3))
+        root.putInt(56).putInt(8).put("#GUID".toByteArray()).put(ByteArray(3))
+        val parsed = ClrMetadata.parse(root.clear())
+        assertEquals(listOf(MetadataStream("#\u00e9\u00e9", 48, 8), MetadataStream("#GUID", 56, 8)), parsed.streams())
+    }
+
+    @Test
+    fun testRichHeader() {
+        PEFile.open(testcaseBytes).use { f -> assertNull(f.richHeader) }
+        // a Rich header with two entries in the DOS stub of the fixture
+        val dans = 0x48
+        val entries = listOf(0x00DE7809 to 5, 0x00010000 to 3)
+        val bytes = testcaseBytes.copyOf()
+        var key = dans
+        for (i in 0 until dans) if (i !in 0x3c until 0x40) key += Integer.rotateLeft(bytes[i].toInt() and 0xff, i)
+        for ((compId, count) in entries) key += Integer.rotateLeft(compId, count)
+        val clear = listOf(0x536E6144, 0, 0, 0) + entries.flatMap { listOf(it.first, it.second) }
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).position(dans)
+        clear.forEach { buffer.putInt(it xor key) }
+        buffer.putInt(0x68636952).putInt(key)
+        PEFile.open(bytes).use { f ->
+            val rich = f.richHeader!!
+            assertEquals(dans, rich.offset())
+            assertEquals(key, rich.key())
+            assertTrue(rich.isChecksumValid)
+            assertEquals(2, rich.size())
+            assertEquals(0xDE, rich.productId(0))
+            assertEquals(30729, rich.buildNumber(0))
+            assertEquals(5, rich.count(0))
+            assertEquals(0x00010000, rich.compId(1))
+            val clearBytes = ByteBuffer.allocate(clear.size * 4).order(ByteOrder.LITTLE_ENDIAN).also { b -> clear.forEach { b.putInt(it) } }.array()
+            val expectedHash = java.security.MessageDigest.getInstance("MD5").digest(clearBytes).joinToString("") { "%02x".format(it) }
+            assertEquals(expectedHash, rich.hash)
+        }
+        // a modified DOS stub breaks the checksum
+        bytes[0x40] = (bytes[0x40] + 1).toByte()
+        PEFile.open(bytes).use { f -> assertEquals(false, f.richHeader!!.isChecksumValid) }
+    }
+
+    @Test
+    fun testImphash() {
+        // mscoree.dll!_CorExeMain, the imphash shared by .NET executables
+        PEFile.open(testcaseBytes).use { f -> assertEquals("f34d5f2d4577ed6d9ceec516c1f5a744", f.computeImphash()) }
+        val rva = 0x2000 + 38416
+        val off = rva - 0x2000 + 0x200
+        val bytes = testcaseBytes.copyOf()
+        val buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+        buffer.putInt(0x100, rva).putInt(0x104, 40)
+        buffer.position(off).putInt(rva + 40).putInt(0).putInt(0).putInt(rva + 80).putInt(rva + 40)
+        buffer.position(off + 40).putInt(0x80000073.toInt()).putInt(0x8000003C.toInt()).putInt(0x800003E7.toInt())
+            .putInt(rva + 96).putInt(0)
+        "WS2_32.dll".toByteArray().copyInto(bytes, off + 80)
+        "Foo".toByteArray().copyInto(bytes, off + 98)
+        // pefile: ws2_32.wsastartup,ws2_32.wsaioctl,ws2_32.ord999,ws2_32.foo
+        PEFile.open(bytes).use { f -> assertEquals("9656c3950a76ead83be3b018b70b385d", f.computeImphash()) }
+        PEFile.open(bytes.also { ByteBuffer.wrap(it).order(ByteOrder.LITTLE_ENDIAN).putLong(0x100, 0) }).use { f -> assertNull(f.computeImphash()) }
+    }
+
+    @Test
+    fun testOverlay() {
+        // the raw data of .reloc ends at 58880, one byte after the end of the fixture
+        PEFile.open(testcaseBytes).use { f -> assertNull(f.overlay) }
+        val payload = ByteArray(1000) { it.toByte() }
+        val certificateOffset = 58880 + payload.size
+        val bytes = testcaseBytes.copyOf(certificateOffset + 16)
+        payload.copyInto(bytes, 58880)
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(0x98 + 128, certificateOffset).putInt(0x98 + 132, 16)
+            .putInt(certificateOffset, 16).putShort(certificateOffset + 4, WinCertificate.REVISION_2_0).putShort(certificateOffset + 6, WinCertificate.TYPE_PKCS_SIGNED_DATA)
+        val path = createTempFile().also { it.writeBytes(bytes) }
+        for (open in listOf({ PEFile.open(bytes) }, { PEFile.open(path.toFile()) }, { PEFile.open(path.toFile(), PEOpenOption.MEMORY_MAPPED) })) {
+            open().use { f ->
+                val overlay = f.overlay!!
+                assertEquals(Overlay(58880, payload.size.toLong()), overlay)
+                val buffer = f.getOverlayBuffer(overlay)
+                assertContentEquals(payload, ByteArray(buffer.remaining()).also { buffer.get(it) })
+                assertContentEquals(payload, f.openOverlayStream(overlay).use { it.readBytes() })
+                val out = ByteArrayOutputStream()
+                assertEquals(payload.size.toLong(), f.transferOverlay(overlay, Channels.newChannel(out)))
+                assertContentEquals(payload, out.toByteArray())
+            }
+        }
+        // without the certificate table, it's a part of the overlay
+        PEFile.open(bytes.also { ByteBuffer.wrap(it).order(ByteOrder.LITTLE_ENDIAN).putLong(0x98 + 128, 0) }).use { f ->
+            assertEquals(Overlay(58880, payload.size + 16L), f.overlay)
+        }
+    }
+}